@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.benchmark;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.resource.locator.IResourceStreamLocator;
+import org.apache.wicket.util.tester.WicketTester;
+import org.wicketstuff.mergedresources.ResourceSpec;
+
+/**
+ * synthetic bundles served from memory by a {@link WicketTester} application
+ */
+final class BenchmarkSupport {
+
+	static final int FILES_PER_BUNDLE = 10;
+
+	private static final String PATH_PREFIX = BenchmarkSupport.class.getPackage().getName().replace('.', '/') + '/';
+
+	private BenchmarkSupport() {
+		// no instances
+	}
+
+	/**
+	 * @return a tester for a deployment application without resource watcher serving all resources passed
+	 */
+	static WicketTester newTester(final Map<String, String> resources) {
+		final WicketTester tester = new WicketTester(new WicketTester.DummyWebApplication() {
+			@Override
+			public String getConfigurationType() {
+				return Application.DEPLOYMENT;
+			}
+		});
+		tester.getApplication().getResourceSettings().setResourceStreamLocator(new SyntheticResourceStreamLocator(resources));
+		return tester;
+	}
+
+	/**
+	 * split a bundle into {@link #FILES_PER_BUNDLE} files named name-i.suffix
+	 *
+	 * @return specs of all files, content is added to resources
+	 */
+	static ResourceSpec[] bundle(final String name, final String suffix, final String content, final Map<String, String> resources) {
+		final ResourceSpec[] specs = new ResourceSpec[FILES_PER_BUNDLE];
+		final int size = content.length() / FILES_PER_BUNDLE;
+		for (int i = 0; i < FILES_PER_BUNDLE; i++) {
+			final String file = name + "-" + i + "." + suffix;
+			final int end = i == FILES_PER_BUNDLE - 1 ? content.length() : (i + 1) * size;
+			resources.put(PATH_PREFIX + file, content.substring(i * size, end));
+			specs[i] = new ResourceSpec(BenchmarkSupport.class, file);
+		}
+		return specs;
+	}
+
+	/**
+	 * @return JavaScript of roughly the given size with comments, whitespace and long local names
+	 */
+	static String javascript(final int size) {
+		final StringBuilder buf = new StringBuilder(size + 512);
+		for (int i = 0; buf.length() < size; i++) {
+			buf.append("/**\n * computes the value of widget ").append(i).append("\n */\n");
+			buf.append("function computeWidgetValue").append(i).append("(firstArgument, secondArgument) {\n");
+			buf.append("    var intermediateResult = firstArgument * ").append(i).append(" + secondArgument;\n");
+			buf.append("    if (intermediateResult > 1000) {\n");
+			buf.append("        intermediateResult = intermediateResult % 1000; // keep it small\n");
+			buf.append("    }\n");
+			buf.append("    return \"widget-").append(i).append(": \" + intermediateResult;\n");
+			buf.append("}\n\n");
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * @return CSS of roughly the given size with comments and relative urls
+	 */
+	static String css(final int size) {
+		final StringBuilder buf = new StringBuilder(size + 512);
+		for (int i = 0; buf.length() < size; i++) {
+			buf.append("/* styles for widget ").append(i).append(" */\n");
+			buf.append(".widget-").append(i).append(" .header, .widget-").append(i).append(" .footer {\n");
+			buf.append("    margin: 0px 0px 0px 0px;\n");
+			buf.append("    color: #ffffff;\n");
+			buf.append("    background: url(images/widget-").append(i).append(".png) no-repeat;\n");
+			buf.append("}\n\n");
+		}
+		return buf.toString();
+	}
+
+	private static final class SyntheticResourceStreamLocator implements IResourceStreamLocator {
+		private final Map<String, String> _resources;
+
+		private SyntheticResourceStreamLocator(final Map<String, String> resources) {
+			_resources = new HashMap<>(resources);
+		}
+
+		@Override
+		public IResourceStream locate(final Class<?> clazz, final String path) {
+			final String content = _resources.get(path);
+			return content == null ? null : new StringResourceStream(content, path.endsWith(".css") ? "text/css"
+					: "application/x-javascript");
+		}
+
+		@Override
+		public IResourceStream locate(final Class<?> clazz, final String path, final String style, final Locale locale, final String extension) {
+			return locate(clazz, path);
+		}
+	}
+}
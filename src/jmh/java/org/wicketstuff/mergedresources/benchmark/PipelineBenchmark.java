@@ -0,0 +1,116 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.javascript.DefaultJavascriptCompressor;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessor;
+import org.wicketstuff.mergedresources.resources.ICssCompressor;
+import org.wicketstuff.mergedresources.resources.MergedResourceStream;
+import org.wicketstuff.mergedresources.util.YuiCompressorUtil;
+
+/**
+ * cost of building bundles: merging, preprocessing and minifying synthetic bundles of 10 KB to 2 MB
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+	@Param({ "10240", "204800", "2097152" })
+	public int size;
+
+	private WicketTester _tester;
+	private ResourceSpec[] _jsSpecs;
+	private ResourceSpec[] _cssSpecs;
+	private String _js;
+	private byte[] _css;
+	private final CssUrlRewritingResourcePreProcessor _cssPreProcessor = new CssUrlRewritingResourcePreProcessor();
+	private final DefaultJavascriptCompressor _jsCompressor = new DefaultJavascriptCompressor();
+
+	@Setup
+	public void setUp() {
+		final Map<String, String> resources = new HashMap<>();
+		_js = BenchmarkSupport.javascript(size);
+		final String css = BenchmarkSupport.css(size);
+		_css = css.getBytes(ICssCompressor.UTF_8);
+		_jsSpecs = BenchmarkSupport.bundle("bundle", "js", _js, resources);
+		_cssSpecs = BenchmarkSupport.bundle("bundle", "css", css, resources);
+		_tester = BenchmarkSupport.newTester(resources);
+	}
+
+	@Setup(Level.Iteration)
+	public void attach() {
+		// benchmark threads might differ from the one running setUp()
+		Application.set(_tester.getApplication());
+	}
+
+	@TearDown
+	public void tearDown() {
+		_tester.destroy();
+	}
+
+	@Benchmark
+	public MergedResourceStream mergeJs() {
+		final MergedResourceStream stream = new MergedResourceStream(_jsSpecs, null, null, null, true);
+		stream.prepare();
+		return stream;
+	}
+
+	@Benchmark
+	public MergedResourceStream mergeCss() {
+		final MergedResourceStream stream = new MergedResourceStream(_cssSpecs, null, null, _cssPreProcessor, true);
+		stream.prepare();
+		return stream;
+	}
+
+	@Benchmark
+	public byte[] rewriteCssUrls() {
+		return _cssPreProcessor.preProcess(_cssSpecs[0], _css);
+	}
+
+	@Benchmark
+	public byte[] compressCss() {
+		return YuiCompressorUtil.compress(_css, ICssCompressor.UTF_8);
+	}
+
+	@Benchmark
+	public String compressJs() {
+		return _jsCompressor.compress(_js);
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Response;
+import org.apache.wicket.behavior.AbstractHeaderContributor;
+import org.apache.wicket.markup.html.internal.HeaderResponse;
+import org.apache.wicket.request.RequestParameters;
+import org.apache.wicket.request.target.resource.SharedResourceRequestTarget;
+import org.apache.wicket.response.StringResponse;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.mergedresources.ResourceMount;
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.util.MergedResourceRequestTargetUrlCodingStrategy;
+
+/**
+ * per request cost: matching request targets against merged mounts and rendering header contributions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+	@Param({ "10", "100" })
+	public int mergedKeys;
+
+	private WicketTester _tester;
+	private MergedResourceRequestTargetUrlCodingStrategy _strategy;
+	private SharedResourceRequestTarget _mergedTarget;
+	private SharedResourceRequestTarget _otherTarget;
+	private AbstractHeaderContributor _contributor;
+
+	@Setup
+	public void setUp() {
+		final ArrayList<String> keys = new ArrayList<>(mergedKeys);
+		for (int i = 0; i < mergedKeys; i++) {
+			keys.add("org.wicketstuff.mergedresources.benchmark.BenchmarkSupport/bundle-" + i + ".js");
+		}
+		_strategy = new MergedResourceRequestTargetUrlCodingStrategy("/script/all.js", "all.js", keys);
+		_mergedTarget = newTarget(keys.get(keys.size() - 1));
+		_otherTarget = newTarget("org.apache.wicket.markup.html.WicketEventReference/wicket-event.js");
+
+		final Map<String, String> resources = new HashMap<>();
+		final ResourceSpec[] specs = BenchmarkSupport.bundle("bundle", "js", BenchmarkSupport.javascript(10240), resources);
+		_tester = BenchmarkSupport.newTester(resources);
+		_contributor = new ResourceMount().setNoVersion().setPath("/script/all.js").addResourceSpecs(specs)
+				.build(_tester.getApplication());
+	}
+
+	@Setup(Level.Iteration)
+	public void attach() {
+		// benchmark threads might differ from the one running setUp()
+		Application.set(_tester.getApplication());
+		_tester.setupRequestAndResponse();
+	}
+
+	@TearDown
+	public void tearDown() {
+		_tester.destroy();
+	}
+
+	@Benchmark
+	public boolean matchMerged() {
+		return _strategy.matches(_mergedTarget);
+	}
+
+	@Benchmark
+	public boolean matchOther() {
+		return _strategy.matches(_otherTarget);
+	}
+
+	@Benchmark
+	public CharSequence renderHead() {
+		final StringResponse out = new StringResponse();
+		final HeaderResponse response = new HeaderResponse() {
+
+			@Override
+			protected Response getRealResponse() {
+				return out;
+			}
+		};
+		_contributor.getHeaderContributors()[0].renderHead(response);
+		return out.getBuffer();
+	}
+
+	private static SharedResourceRequestTarget newTarget(final String resourceKey) {
+		final RequestParameters parameters = new RequestParameters();
+		parameters.setResourceKey(resourceKey);
+		return new SharedResourceRequestTarget(parameters);
+	}
+}
@@ -24,6 +24,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.MetaDataKey;
@@ -46,23 +52,42 @@ import org.wicketstuff.mergedresources.annotations.ContributionScanner;
 import org.wicketstuff.mergedresources.annotations.ContributionScanner.WeightedResourceSpec;
 import org.wicketstuff.mergedresources.annotations.CssContribution;
 import org.wicketstuff.mergedresources.annotations.JsContribution;
+import org.wicketstuff.mergedresources.metrics.IResourceMetrics;
+import org.wicketstuff.mergedresources.metrics.JmxResourceMetrics;
+import org.wicketstuff.mergedresources.metrics.NoOpResourceMetrics;
 import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
+import org.wicketstuff.mergedresources.preprocess.ResourcePreProcessorChain;
 import org.wicketstuff.mergedresources.resources.CachedCompressedCssResourceReference;
 import org.wicketstuff.mergedresources.resources.CachedCompressedJsResourceReference;
 import org.wicketstuff.mergedresources.resources.CachedCompressedResourceReference;
 import org.wicketstuff.mergedresources.resources.CachedResourceReference;
+import org.wicketstuff.mergedresources.resources.ClasspathResourceBuildCache;
 import org.wicketstuff.mergedresources.resources.CompressedMergedCssResource;
 import org.wicketstuff.mergedresources.resources.CompressedMergedCssResourceReference;
+import org.wicketstuff.mergedresources.resources.CompressedMergedJsResource;
 import org.wicketstuff.mergedresources.resources.CompressedMergedJsResourceReference;
 import org.wicketstuff.mergedresources.resources.CompressedMergedResourceReference;
+import org.wicketstuff.mergedresources.resources.DirectResourceContentStore;
+import org.wicketstuff.mergedresources.resources.FileResourceBuildCache;
+import org.wicketstuff.mergedresources.resources.HeapResourceContentStore;
 import org.wicketstuff.mergedresources.resources.ICssCompressor;
+import org.wicketstuff.mergedresources.resources.IResourceBuildCache;
+import org.wicketstuff.mergedresources.resources.IResourceContentStore;
+import org.wicketstuff.mergedresources.resources.MergedResource;
 import org.wicketstuff.mergedresources.resources.MergedResourceReference;
+import org.wicketstuff.mergedresources.resources.ResourceBuildExporter;
+import org.wicketstuff.mergedresources.resources.SourceMapResource;
+import org.wicketstuff.mergedresources.util.IEarlyHints;
+import org.wicketstuff.mergedresources.util.IndexedWebRequestCodingStrategy;
 import org.wicketstuff.mergedresources.util.MergedHeaderContributor;
 import org.wicketstuff.mergedresources.util.MergedResourceRequestTargetUrlCodingStrategy;
 import org.wicketstuff.mergedresources.util.Pair;
+import org.wicketstuff.mergedresources.util.PreloadLinks;
 import org.wicketstuff.mergedresources.util.RedirectStrategy;
+import org.wicketstuff.mergedresources.util.SharedResourceStrategyIndex;
 import org.wicketstuff.mergedresources.versioning.AbstractResourceVersion;
 import org.wicketstuff.mergedresources.versioning.AbstractResourceVersion.IncompatibleVersionsException;
+import org.wicketstuff.mergedresources.versioning.ContentDigestVersionProvider;
 import org.wicketstuff.mergedresources.versioning.IResourceVersionProvider;
 import org.wicketstuff.mergedresources.versioning.IResourceVersionProvider.VersionException;
 import org.wicketstuff.mergedresources.versioning.RevisionVersionProvider;
@@ -119,6 +144,69 @@ public class ResourceMount implements Cloneable {
 		private static final long serialVersionUID = 1L;
 	};
 
+	/**
+	 * MetaDataKey used for {@link IResourceContentStore}
+	 */
+	public static final MetaDataKey<IResourceContentStore> CONTENT_STORE_KEY = new MetaDataKey<IResourceContentStore>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * MetaDataKey used for {@link IResourceBuildCache}
+	 */
+	public static final MetaDataKey<IResourceBuildCache> BUILD_CACHE_KEY = new MetaDataKey<IResourceBuildCache>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * MetaDataKey used for {@link IResourceMetrics}
+	 */
+	public static final MetaDataKey<IResourceMetrics> METRICS_KEY = new MetaDataKey<IResourceMetrics>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * MetaDataKey used for the {@link ExecutorService} loading mounted resources
+	 */
+	public static final MetaDataKey<ExecutorService> INIT_EXECUTOR_KEY = new MetaDataKey<ExecutorService>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * MetaDataKey used for the {@link ForkJoinPool} processing merged files individually
+	 */
+	public static final MetaDataKey<ForkJoinPool> FILE_BUILD_POOL_KEY = new MetaDataKey<ForkJoinPool>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * MetaDataKey used for the {@link IEarlyHints} hook of preloaded resources
+	 */
+	public static final MetaDataKey<IEarlyHints> EARLY_HINTS_KEY = new MetaDataKey<IEarlyHints>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final MetaDataKey<PreloadLinks> PRELOAD_LINKS_KEY = new MetaDataKey<PreloadLinks>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final MetaDataKey<SharedResourceStrategyIndex> STRATEGY_INDEX_KEY = new MetaDataKey<SharedResourceStrategyIndex>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final MetaDataKey<ConcurrentLinkedQueue<Future<?>>> INIT_FUTURES_KEY = new MetaDataKey<ConcurrentLinkedQueue<Future<?>>>() {
+
+		private static final long serialVersionUID = 1L;
+	};
+
 	private Integer _cacheDuration = null;
 	private String _path = null;
 	private AbstractResourceVersion _version = null;
@@ -134,6 +222,8 @@ public class ResourceMount implements Cloneable {
 	private Boolean _minifyJs;
 	private Boolean _minifyCss;
 	private boolean _mountRedirect = true;
+	private boolean _sourceMap = false;
+	private boolean _preload = false;
 	private Class<?> _mountScope;
 	private Boolean _merge;
 	private IResourcePreProcessor _preProcessor;
@@ -345,6 +435,212 @@ public class ResourceMount implements Cloneable {
 		return application.getMetaData(CSS_COMPRESSOR_KEY);
 	}
 
+	/**
+	 * set {@link IResourceContentStore} keeping content of merged resources, e.g. {@link DirectResourceContentStore}
+	 * to keep it off the heap. Only affects resources built afterwards.
+	 *
+	 * @param application
+	 * @param store
+	 *            the store or <code>null</code> for {@link HeapResourceContentStore}
+	 */
+	public static void setContentStore(final Application application, final IResourceContentStore store) {
+		application.setMetaData(CONTENT_STORE_KEY, store);
+	}
+
+	/**
+	 * get {@link IResourceContentStore} keeping content of merged resources
+	 *
+	 * @param application
+	 */
+	public static IResourceContentStore getContentStore(final Application application) {
+		return application.getMetaData(CONTENT_STORE_KEY);
+	}
+
+	/**
+	 * set {@link IResourceBuildCache} used to reuse merged, preprocessed and minified content across restarts, e.g.
+	 * {@link FileResourceBuildCache}. Entries are keyed by a digest of all inputs, locale, style, preprocessor and
+	 * compressor classes. Preprocessors and compressors changing their output without changing their class require a
+	 * fresh cache. Use {@link ClasspathResourceBuildCache} to serve content exported at build time by
+	 * {@link ResourceBuildExporter}.
+	 *
+	 * @param application
+	 * @param cache
+	 *            the cache or <code>null</code> to always build content
+	 */
+	public static void setBuildCache(final Application application, final IResourceBuildCache cache) {
+		application.setMetaData(BUILD_CACHE_KEY, cache);
+	}
+
+	/**
+	 * get {@link IResourceBuildCache} used to reuse content across restarts
+	 *
+	 * @param application
+	 */
+	public static IResourceBuildCache getBuildCache(final Application application) {
+		return application.getMetaData(BUILD_CACHE_KEY);
+	}
+
+	/**
+	 * set {@link IResourceMetrics} collecting build timings, sizes and request counts of merged resources, e.g.
+	 * {@link JmxResourceMetrics}
+	 *
+	 * @param application
+	 * @param metrics
+	 *            the metrics or <code>null</code> for {@link NoOpResourceMetrics}
+	 */
+	public static void setMetrics(final Application application, final IResourceMetrics metrics) {
+		application.setMetaData(METRICS_KEY, metrics);
+	}
+
+	/**
+	 * get {@link IResourceMetrics} collecting metrics of merged resources
+	 *
+	 * @param application
+	 * @return the metrics, {@link NoOpResourceMetrics} if not set
+	 */
+	public static IResourceMetrics getMetrics(final Application application) {
+		final IResourceMetrics metrics = application.getMetaData(METRICS_KEY);
+		return metrics != null ? metrics : NoOpResourceMetrics.INSTANCE;
+	}
+
+	/**
+	 * set {@link ExecutorService} used to load mounted resources into memory (e.g. a bounded
+	 * {@link java.util.concurrent.ForkJoinPool}). If set, resources are mounted immediately while reading, merging and
+	 * minifying them is submitted to the executor. Resources not loaded yet are loaded on first request. Use
+	 * {@link #awaitInit(Application)} to wait for all submitted resources. Shutting down the executor is up to the
+	 * caller.
+	 *
+	 * @param application
+	 * @param executor
+	 *            the executor or <code>null</code> to load resources while mounting them
+	 */
+	public static void setInitExecutor(final Application application, final ExecutorService executor) {
+		synchronized (application) {
+			if (executor != null && application.getMetaData(INIT_FUTURES_KEY) == null) {
+				application.setMetaData(INIT_FUTURES_KEY, new ConcurrentLinkedQueue<Future<?>>());
+			}
+			application.setMetaData(INIT_EXECUTOR_KEY, executor);
+		}
+	}
+
+	/**
+	 * get {@link ExecutorService} used to load mounted resources into memory
+	 *
+	 * @param application
+	 * @see #setInitExecutor(Application, ExecutorService)
+	 */
+	public static ExecutorService getInitExecutor(final Application application) {
+		return application.getMetaData(INIT_EXECUTOR_KEY);
+	}
+
+	/**
+	 * wait for all resources submitted to the executor set using {@link #setInitExecutor(Application, ExecutorService)}
+	 *
+	 * @param application
+	 * @throws WicketRuntimeException
+	 *             if loading any of the resources failed
+	 */
+	public static void awaitInit(final Application application) {
+		final ConcurrentLinkedQueue<Future<?>> futures = application.getMetaData(INIT_FUTURES_KEY);
+		if (futures == null) {
+			return;
+		}
+		WicketRuntimeException failure = null;
+		Future<?> future;
+		while ((future = futures.poll()) != null) {
+			try {
+				future.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WicketRuntimeException("interrupted while waiting for resources", e);
+			} catch (final ExecutionException e) {
+				if (failure == null) {
+					failure = new WicketRuntimeException("failed to load resource", e.getCause());
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * set {@link ForkJoinPool} used to preprocess and minify each file of a merged resource in parallel before
+	 * concatenating them in order. Processed files are kept in memory, hence a rebuild after changing a single file
+	 * only processes that file again. Preprocessing of the complete merged resource runs after minifying the files.
+	 *
+	 * @param application
+	 * @param pool
+	 *            the pool or <code>null</code> to preprocess files sequentially and minify the complete merged resource
+	 */
+	public static void setFileBuildPool(final Application application, final ForkJoinPool pool) {
+		application.setMetaData(FILE_BUILD_POOL_KEY, pool);
+	}
+
+	/**
+	 * get {@link ForkJoinPool} used to process merged files individually
+	 *
+	 * @param application
+	 * @see #setFileBuildPool(Application, ForkJoinPool)
+	 */
+	public static ForkJoinPool getFileBuildPool(final Application application) {
+		return application.getMetaData(FILE_BUILD_POOL_KEY);
+	}
+
+	/**
+	 * set {@link IEarlyHints} hook called once per page request after preload Link headers were added to its
+	 * response, see {@link #setPreload(boolean)}
+	 *
+	 * @param application
+	 * @param earlyHints
+	 *            the hook or <code>null</code> to only send Link headers with the final response
+	 */
+	public static void setEarlyHints(final Application application, final IEarlyHints earlyHints) {
+		application.setMetaData(EARLY_HINTS_KEY, earlyHints);
+	}
+
+	/**
+	 * get {@link IEarlyHints} hook of preloaded resources
+	 *
+	 * @param application
+	 * @see #setEarlyHints(Application, IEarlyHints)
+	 */
+	public static IEarlyHints getEarlyHints(final Application application) {
+		return application.getMetaData(EARLY_HINTS_KEY);
+	}
+
+	/**
+	 * get the preload Link headers of all ResourceMounts of this application with {@link #setPreload(boolean)}
+	 *
+	 * @param application
+	 * @see PreloadLinks#send(org.apache.wicket.protocol.http.WebRequestCycle)
+	 */
+	public static PreloadLinks getPreloadLinks(final Application application) {
+		synchronized (application) {
+			PreloadLinks links = application.getMetaData(PRELOAD_LINKS_KEY);
+			if (links == null) {
+				application.setMetaData(PRELOAD_LINKS_KEY, links = new PreloadLinks());
+			}
+			return links;
+		}
+	}
+
+	/**
+	 * get the index of all shared resource keys mounted by ResourceMounts of this application, see
+	 * {@link IndexedWebRequestCodingStrategy}
+	 *
+	 * @param application
+	 */
+	public static SharedResourceStrategyIndex getStrategyIndex(final Application application) {
+		synchronized (application) {
+			SharedResourceStrategyIndex index = application.getMetaData(STRATEGY_INDEX_KEY);
+			if (index == null) {
+				application.setMetaData(STRATEGY_INDEX_KEY, index = new SharedResourceStrategyIndex());
+			}
+			return index;
+		}
+	}
+
 	/**
 	 * Create a new ResourceMount with default settings
 	 */
@@ -582,6 +878,48 @@ public class ResourceMount implements Cloneable {
 		return this;
 	}
 
+	/**
+	 * @param sourceMap
+	 *            whether a Source Map v3 index map should be mounted at the path of merged resources plus ".map" and
+	 *            referenced using a SourceMap header. Maps are only available if the merged content isn't processed
+	 *            as a whole, e.g. if minified per file using {@link #setFileBuildPool(Application, ForkJoinPool)}.
+	 *            Otherwise, a warning is logged on mount and the map isn't found. default is <code>false</code>
+	 * @return this
+	 */
+	public ResourceMount setSourceMap(final boolean sourceMap) {
+		_sourceMap = sourceMap;
+		return this;
+	}
+
+	/**
+	 * @return whether source maps are mounted for merged resources
+	 */
+	public boolean isSourceMap() {
+		return _sourceMap;
+	}
+
+	/**
+	 * @param preload
+	 *            whether a <code>Link: &lt;url&gt;; rel=preload</code> header should be added to page responses for
+	 *            each mounted JS and CSS resource, letting browsers fetch them before parsing the page. Requires
+	 *            calling {@link PreloadLinks#send(org.apache.wicket.protocol.http.WebRequestCycle)} from the
+	 *            application's request cycle, see {@link #getPreloadLinks(Application)}. default is
+	 *            <code>false</code>
+	 * @return this
+	 * @see #setEarlyHints(Application, IEarlyHints)
+	 */
+	public ResourceMount setPreload(final boolean preload) {
+		_preload = preload;
+		return this;
+	}
+
+	/**
+	 * @return whether preload Link headers are added for mounted resources
+	 */
+	public boolean isPreload() {
+		return _preload;
+	}
+
 	/**
 	 * Locale might either be detected from added {@link ResourceSpec}s or set manually.
 	 *
@@ -778,6 +1116,24 @@ public class ResourceMount implements Cloneable {
 		return this;
 	}
 
+	/**
+	 * run preProcessor after the current {@link IResourcePreProcessor}, combining both in a
+	 * {@link ResourcePreProcessorChain}
+	 *
+	 * @param preProcessor
+	 * @return this
+	 */
+	public ResourceMount addPreProcessor(final IResourcePreProcessor preProcessor) {
+		if (_preProcessor == null) {
+			_preProcessor = preProcessor;
+		} else if (_preProcessor instanceof ResourcePreProcessorChain) {
+			_preProcessor = ((ResourcePreProcessorChain) _preProcessor).add(preProcessor);
+		} else {
+			_preProcessor = new ResourcePreProcessorChain(_preProcessor, preProcessor);
+		}
+		return this;
+	}
+
 	/**
 	 * @return current suffixMismatchStrategy
 	 */
@@ -1039,25 +1395,57 @@ public class ResourceMount implements Cloneable {
 			for (final Pair<String, ResourceSpec[]> p : specsList) {
 				final ResourceSpec[] specs = p.getSecond();
 
-				final String path = getPath(p.getFirst(), specs);
 				final String unversionedPath = getPath(p.getFirst(), null);
 
 				checkSuffixes(unversionedPath, Arrays.asList(specs));
 
-				final boolean versioned = !unversionedPath.equals(path);
-
 				final String name = specs.length == 1 ? specs[0].getFile() : unversionedPath;
 
-				final ResourceReference ref = newResourceReference(getScope(specs), name, getLocale(specs), getStyle(specs), getCacheDuration(specs, versioned), specs, _preProcessor);
+				final String path;
+				final ResourceReference ref;
+				if (isContentVersioned()) {
+					// version depends on final content, build resource first
+					ref = newResourceReference(getScope(specs), name, getLocale(specs), getStyle(specs), getCacheDuration(specs, true), specs, _preProcessor);
+					ref.bind(application);
+					if (_sourceMap && ref.getResource() instanceof MergedResource) {
+						// build map with content
+						((MergedResource) ref.getResource()).getMergedResourceStream().setSourceMap(true);
+					}
+					path = buildVersionedPath(unversionedPath, getContentVersion(ref));
+				} else {
+					path = getPath(p.getFirst(), specs);
+					final int cacheDuration = getCacheDuration(specs, !unversionedPath.equals(path));
+					ref = newResourceReference(getScope(specs), name, getLocale(specs), getStyle(specs), cacheDuration, specs, _preProcessor);
+					ref.bind(application);
+				}
+
+				final boolean versioned = !unversionedPath.equals(path);
+
 				refs.add(ref);
-				ref.bind(application);
-				application.mount(newStrategy(path, ref, merge));
+				final IRequestTargetUrlCodingStrategy strategy = newStrategy(path, ref, merge);
+				application.mount(strategy);
+
+				final List<String> keys = merge ? getMergedKeys(ref) : new ArrayList<String>(1);
+				keys.add(ref.getSharedResourceKey());
+				getStrategyIndex(application).add(strategy, keys);
+
+				if (_sourceMap && ref.getResource() instanceof MergedResource) {
+					mountSourceMap(application, path, (MergedResource) ref.getResource());
+				}
 
 				if (_mountRedirect && versioned) {
 					application.mount(newRedirectStrategy(unversionedPath, path));
 				}
 
-				initResource(ref);
+				final ExecutorService executor = getInitExecutor(application);
+				if (executor != null) {
+					submitInitResource(application, executor, ref);
+				} else {
+					initResource(ref);
+				}
+			}
+			if (_preload) {
+				getPreloadLinks(application).add(refs, cssMediaType);
 			}
 			return newHeaderContributor(refs, cssMediaType);
 		} catch (final VersionException e) {
@@ -1080,21 +1468,84 @@ public class ResourceMount implements Cloneable {
 	}
 
 	/**
-	 * load resource stream once in order to load it into memory
+	 * mount the {@link SourceMapResource} of resource next to it
+	 *
+	 * @param application
+	 * @param path
+	 *            mount path of resource
+	 * @param resource
+	 */
+	private void mountSourceMap(final WebApplication application, final String path, final MergedResource resource) {
+		if (getFileBuildPool(application) == null
+				&& (resource instanceof CompressedMergedJsResource || resource instanceof CompressedMergedCssResource)) {
+			LOG.warn("no source map available for " + path
+					+ " as it's minified as a whole, use setFileBuildPool(Application, ForkJoinPool) to minify per file");
+		}
+		resource.setSourceMapUrl(path.substring(path.lastIndexOf('/') + 1) + ".map");
+
+		final ResourceReference mapRef = new ResourceReference(resource.getScope(), resource.getPath() + ".map") {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Resource newResource() {
+				return new SourceMapResource(resource);
+			}
+		};
+		mapRef.bind(application);
+		final IRequestTargetUrlCodingStrategy strategy = new SharedResourceRequestTargetUrlCodingStrategy(path + ".map", mapRef.getSharedResourceKey());
+		application.mount(strategy);
+		getStrategyIndex(application).add(strategy, Collections.singleton(mapRef.getSharedResourceKey()));
+	}
+
+	/**
+	 * load resource into memory, building all of its representations (e.g. identity and gzipped) without touching
+	 * application settings. Hence it's safe to mount resources concurrently or while requests are served.
 	 *
 	 * @param ref
 	 * @throws ResourceStreamNotFoundException
 	 */
 	private void initResource(final ResourceReference ref) throws ResourceStreamNotFoundException {
-		final boolean gzip = Application.get().getResourceSettings().getDisableGZipCompression();
-		try {
-			Application.get().getResourceSettings().setDisableGZipCompression(true);
-			ref.getResource().getResourceStream().getInputStream();
-		} finally {
-			Application.get().getResourceSettings().setDisableGZipCompression(gzip);
+		final Resource resource = ref.getResource();
+		if (resource instanceof MergedResource) {
+			((MergedResource) resource).prepare();
+		} else {
+			resource.getResourceStream().getInputStream();
 		}
 	}
 
+	/**
+	 * load resource using the given executor
+	 *
+	 * @param application
+	 * @param executor
+	 * @param ref
+	 */
+	private void submitInitResource(final Application application, final ExecutorService executor, final ResourceReference ref) {
+		final Future<?> future = executor.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				final boolean attach = !Application.exists();
+				if (attach) {
+					Application.set(application);
+				}
+				try {
+					initResource(ref);
+					return null;
+				} catch (final Exception e) {
+					LOG.warn("failed to load resource " + ref.getSharedResourceKey(), e);
+					throw e;
+				} finally {
+					if (attach) {
+						Application.unset();
+					}
+				}
+			}
+		});
+		application.getMetaData(INIT_FUTURES_KEY).add(future);
+	}
+
 	/**
 	 * create a new {@link IRequestTargetUrlCodingStrategy}
 	 *
@@ -1108,27 +1559,36 @@ public class ResourceMount implements Cloneable {
 	 */
 	protected IRequestTargetUrlCodingStrategy newStrategy(final String mountPath, final ResourceReference ref, final boolean merge) {
 		if (merge) {
-			final ArrayList<String> mergedKeys = new ArrayList<>(_resourceSpecs.size());
-			for (final ResourceSpec spec : _resourceSpecs) {
-				mergedKeys.add(new ResourceReference(spec.getScope(), spec.getFile()) {
+			return new MergedResourceRequestTargetUrlCodingStrategy(mountPath, ref.getSharedResourceKey(), getMergedKeys(ref));
+		} else {
+			return new SharedResourceRequestTargetUrlCodingStrategy(mountPath, ref.getSharedResourceKey());
+		}
+	}
 
-					private static final long serialVersionUID = 1L;
+	/**
+	 * @param ref
+	 *            the {@link ResourceReference} of the merged resource
+	 * @return shared resource keys of all merged resources, served by ref
+	 */
+	private List<String> getMergedKeys(final ResourceReference ref) {
+		final List<String> mergedKeys = new ArrayList<>(_resourceSpecs.size() + 1);
+		for (final ResourceSpec spec : _resourceSpecs) {
+			mergedKeys.add(new ResourceReference(spec.getScope(), spec.getFile()) {
 
-					@Override
-					protected Resource newResource() {
-						final Resource r = ref.getResource();
-						if (r == null) {
-							throw new WicketRuntimeException("ResourceReference wasn't bound to application yet");
-						}
-						return r;
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Resource newResource() {
+					final Resource r = ref.getResource();
+					if (r == null) {
+						throw new WicketRuntimeException("ResourceReference wasn't bound to application yet");
 					}
+					return r;
+				}
 
-				}.getSharedResourceKey());
-			}
-			return new MergedResourceRequestTargetUrlCodingStrategy(mountPath, ref.getSharedResourceKey(), mergedKeys);
-		} else {
-			return new SharedResourceRequestTargetUrlCodingStrategy(mountPath, ref.getSharedResourceKey());
+			}.getSharedResourceKey());
 		}
+		return mergedKeys;
 	}
 
 	/**
@@ -1269,6 +1729,33 @@ public class ResourceMount implements Cloneable {
 		return null;
 	}
 
+	/**
+	 * @return <code>true</code> if no version is forced and the {@link IResourceVersionProvider} is a
+	 *         {@link ContentDigestVersionProvider}
+	 */
+	protected boolean isContentVersioned() {
+		return _version == null && _resourceVersionProvider instanceof ContentDigestVersionProvider;
+	}
+
+	/**
+	 * detect the version from the final content of a bound {@link ResourceReference}, only used if
+	 * {@link #isContentVersioned()}
+	 *
+	 * @param ref
+	 *            the bound {@link ResourceReference}
+	 * @return the version
+	 * @throws VersionException
+	 *             if the resource doesn't provide its content digest
+	 */
+	protected AbstractResourceVersion getContentVersion(final ResourceReference ref) throws VersionException {
+		final Resource resource = ref.getResource();
+		if (resource instanceof MergedResource) {
+			final String digest = ((MergedResource) resource).getMergedResourceStream().getDigest();
+			return ((ContentDigestVersionProvider) _resourceVersionProvider).getVersion(digest);
+		}
+		throw new VersionException("can't get content digest from resource " + resource + " (" + ref + ")");
+	}
+
 	/**
 	 * get the mount scope. Either use the manually set scope ( {@link #setMountScope(Class)} or detect it. Default is
 	 * to use the scope of all specs if it is common or use {@link ResourceMount}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.annotations;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * annotation processor writing the names of all classes annotated with {@link JsContribution},
+ * {@link CssContribution}, {@link CssContributions} or {@link ResourceContribution} to
+ * {@link ContributionScanner#INDEX}. {@link ContributionScanner} reads this index instead of scanning the classpath.
+ * Classes of an existing index that still carry one of the annotations are kept, hence incremental compiles don't
+ * truncate it. Modules without annotated classes get an empty index, telling {@link ContributionScanner} that there's
+ * nothing to scan. Therefore, the processor supports all annotations but never claims them.
+ * <p>
+ * The processor isn't registered as a service. Enable it explicitly, e.g. with maven-compiler-plugin:
+ *
+ * <pre>
+ * &lt;annotationProcessorPaths&gt;
+ *   &lt;path&gt;
+ *     &lt;groupId&gt;at.molindo&lt;/groupId&gt;
+ *     &lt;artifactId&gt;wicketstuff-merged-resources&lt;/artifactId&gt;
+ *     &lt;version&gt;...&lt;/version&gt;
+ *   &lt;/path&gt;
+ * &lt;/annotationProcessorPaths&gt;
+ * &lt;annotationProcessors&gt;
+ *   &lt;annotationProcessor&gt;org.wicketstuff.mergedresources.annotations.ContributionIndexProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ * </pre>
+ */
+@SupportedAnnotationTypes("*")
+public class ContributionIndexProcessor extends AbstractProcessor {
+
+	private static final Set<String> ANNOTATIONS = new HashSet<>(Arrays.asList(JsContribution.class.getName(),
+			CssContribution.class.getName(), CssContributions.class.getName(), ResourceContribution.class.getName()));
+
+	private final SortedSet<String> _classNames = new TreeSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		for (final TypeElement annotation : annotations) {
+			if (!ANNOTATIONS.contains(annotation.getQualifiedName().toString())) {
+				continue;
+			}
+			for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element instanceof TypeElement) {
+					_classNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+				}
+			}
+		}
+
+		if (roundEnv.processingOver()) {
+			readIndex();
+			writeIndex();
+		}
+
+		// other processors may use these annotations too
+		return false;
+	}
+
+	/**
+	 * add classes of an existing index that still exist and are still annotated
+	 */
+	private void readIndex() {
+		final BufferedReader reader;
+		try {
+			final FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+					ContributionScanner.INDEX);
+			reader = new BufferedReader(new InputStreamReader(file.openInputStream(), "UTF-8"));
+		} catch (final FileNotFoundException | NoSuchFileException e) {
+			// first compile
+			return;
+		} catch (final IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+					"failed to read " + ContributionScanner.INDEX + ", rewriting it: " + e);
+			return;
+		}
+		try {
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (!line.isEmpty() && !_classNames.contains(line) && isAnnotated(line)) {
+						_classNames.add(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+					"failed to read " + ContributionScanner.INDEX + ", rewriting it: " + e);
+		}
+	}
+
+	/**
+	 * @return whether the class still exists and is annotated with one of the supported annotations
+	 */
+	private boolean isAnnotated(final String binaryName) {
+		final TypeElement element = processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+		if (element == null) {
+			return false;
+		}
+		for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			final Element type = mirror.getAnnotationType().asElement();
+			if (type instanceof TypeElement
+					&& ANNOTATIONS.contains(((TypeElement) type).getQualifiedName().toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void writeIndex() {
+		try {
+			final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+					ContributionScanner.INDEX);
+			final Writer out = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+			try {
+				for (final String className : _classNames) {
+					out.write(className);
+					out.write('\n');
+				}
+			} finally {
+				out.close();
+			}
+		} catch (final IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"failed to write " + ContributionScanner.INDEX + ": " + e);
+		}
+	}
+}
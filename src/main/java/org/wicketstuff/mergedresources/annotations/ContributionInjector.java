@@ -15,45 +15,43 @@
  */
 package org.wicketstuff.mergedresources.annotations;
 
-import java.util.HashMap;
-
 import org.apache.wicket.Component;
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.application.IComponentInstantiationListener;
 
 public class ContributionInjector implements IComponentInstantiationListener {
 
-	private final HashMap<Class<? extends Component>, HeaderContribution> _contributions = new HashMap<>();
+	/**
+	 * {@link HeaderContribution} per component class, <code>null</code> for classes that aren't eligible. Computed
+	 * once per class without locking on subsequent lookups.
+	 */
+	private final ClassValue<HeaderContribution> _contributions = new ClassValue<HeaderContribution>() {
 
-	@Override
-	public void onInstantiation(final Component component) {
-		if (eligible(component)) {
-			asMarkupContainer(component).add(getHeaderContribution(component.getClass()));
+		@Override
+		@SuppressWarnings("unchecked")
+		protected HeaderContribution computeValue(final Class<?> cls) {
+			return eligible(cls) ? new HeaderContribution((Class<? extends Component>) cls) : null;
 		}
-	}
+	};
 
-	private HeaderContribution getHeaderContribution(final Class<? extends Component> cls) {
-		HeaderContribution hc = _contributions.get(cls);
-		if (hc == null) {
-			synchronized (_contributions) {
-				hc = new HeaderContribution(cls);
-				_contributions.put(cls, hc);
-			}
+	@Override
+	public void onInstantiation(final Component component) {
+		final HeaderContribution hc = _contributions.get(component.getClass());
+		if (hc != null) {
+			asMarkupContainer(component).add(hc);
 		}
-		return hc;
 	}
 
 	private MarkupContainer asMarkupContainer(final Component component) {
 		return (MarkupContainer) component;
 	}
 
-	private boolean hasResourceAnnotation(final Component component) {
-		return component.getClass().getAnnotation(JsContribution.class) != null
-				|| component.getClass().getAnnotation(CssContribution.class) != null;
+	private static boolean hasResourceAnnotation(final Class<?> cls) {
+		return cls.getAnnotation(JsContribution.class) != null || cls.getAnnotation(CssContribution.class) != null;
 	}
 
-	private boolean eligible(final Component component) {
-		return MarkupContainer.class.isAssignableFrom(component.getClass()) && hasResourceAnnotation(component);
+	private static boolean eligible(final Class<?> cls) {
+		return MarkupContainer.class.isAssignableFrom(cls) && hasResourceAnnotation(cls);
 	}
 
 }
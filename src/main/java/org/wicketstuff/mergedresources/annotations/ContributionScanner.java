@@ -15,10 +15,20 @@
  */
 package org.wicketstuff.mergedresources.annotations;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -27,6 +37,7 @@ import org.apache.wicket.util.string.Strings;
 import org.wicketstuff.config.MatchingResources;
 import org.wicketstuff.mergedresources.ResourceSpec;
 
+import at.molindo.utils.data.StringUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
@@ -35,6 +46,12 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  * Helper to make using wicketstuff-merged-resources easier.
  */
 public class ContributionScanner {
+	private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ContributionScanner.class);
+
+	/**
+	 * classpath location of indexes written by {@link ContributionIndexProcessor}
+	 */
+	public static final String INDEX = "META-INF/merged-resources/contributions.index";
 
 	private static final String DEFAULT_PATH_JS = "all.js";
 	private static final String DEFAULT_PATH_CSS = "all.css";
@@ -42,32 +59,151 @@ public class ContributionScanner {
 	private final Map<String, SortedSet<WeightedResourceSpec>> _contributions;
 
 	public ContributionScanner(final String packageName) {
-		final MatchingResources resources = new MatchingResources(getPatternForPackage(packageName));
+		this(packageName, true);
+	}
+
+	/**
+	 * @param packageName
+	 *            package to gather contributions from, including sub-packages
+	 * @param useIndex
+	 *            whether to read classes from {@link #INDEX} files if present. The classpath is scanned instead if
+	 *            there is no index or if the package is found on a classpath root without an index (e.g. compiled
+	 *            without {@link ContributionIndexProcessor}). Roots are found by the directory of the package, hence
+	 *            jars without directory entries (e.g. some shaded jars) aren't detected and their classes are ignored
+	 *            unless indexed.
+	 */
+	public ContributionScanner(final String packageName, final boolean useIndex) {
+		final List<Class<?>> indexed = useIndex ? readIndex(packageName) : null;
+		if (indexed != null) {
+			_contributions = scan(indexed);
+		} else {
+			_contributions = scan(new MatchingResources(getPatternForPackage(packageName)));
+		}
+	}
+
+	/**
+	 * @return indexed classes in packageName or <code>null</code> if there is no index or if it's incomplete
+	 */
+	private static List<Class<?>> readIndex(final String packageName) {
+		final ClassLoader classLoader = getClassLoader();
+		final String prefix = Strings.isEmpty(packageName) ? "" : StringUtils.trailing(packageName, ".");
+		try {
+			final Enumeration<URL> indexes = classLoader.getResources(INDEX);
+			final Set<String> roots = new HashSet<>();
+			final Set<String> classNames = new LinkedHashSet<>();
+			while (indexes.hasMoreElements()) {
+				final URL index = indexes.nextElement();
+				roots.add(getRoot(index, INDEX));
+				final BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), "UTF-8"));
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						line = line.trim();
+						if (!line.isEmpty() && line.startsWith(prefix)) {
+							classNames.add(line);
+						}
+					}
+				} finally {
+					reader.close();
+				}
+			}
+
+			if (roots.isEmpty() || classNames.isEmpty() && Strings.isEmpty(packageName)) {
+				return null;
+			}
+
+			if (!Strings.isEmpty(packageName)) {
+				final String path = packageName.replace('.', '/');
+				final Enumeration<URL> packages = classLoader.getResources(path);
+				while (packages.hasMoreElements()) {
+					final String root = getRoot(packages.nextElement(), path);
+					if (!roots.contains(root)) {
+						log.warn("scanning " + packageName + " as classes in " + root + " aren't indexed");
+						return null;
+					}
+				}
+			}
+			log.info("reading contributions in " + packageName + " from " + INDEX
+					+ ", jars without directory entries and index aren't detected");
+
+			final List<Class<?>> classes = new ArrayList<>(classNames.size());
+			for (final String className : classNames) {
+				try {
+					classes.add(Class.forName(className, false, classLoader));
+				} catch (final ClassNotFoundException e) {
+					log.warn("ignoring indexed class that doesn't exist: " + className);
+				}
+			}
+			return classes;
+		} catch (final IOException e) {
+			throw new WicketRuntimeException("failed to read " + INDEX, e);
+		}
+	}
 
-		_contributions = scan(resources);
+	/**
+	 * @return the classpath root of a resource, i.e. its URL without path
+	 */
+	private static String getRoot(final URL url, final String path) {
+		final String s = url.toString();
+		final int end = s.endsWith("/") ? s.length() - 1 : s.length();
+		return s.substring(0, end - path.length());
+	}
+
+	private static ClassLoader getClassLoader() {
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader != null ? classLoader : ContributionScanner.class.getClassLoader();
 	}
 
 	private Map<String, SortedSet<WeightedResourceSpec>> scan(final MatchingResources resources) {
+		return scan(resources.getAnnotatedMatches(JsContribution.class),
+				resources.getAnnotatedMatches(CssContribution.class),
+				resources.getAnnotatedMatches(CssContributions.class),
+				resources.getAnnotatedMatches(ResourceContribution.class));
+	}
+
+	private Map<String, SortedSet<WeightedResourceSpec>> scan(final List<Class<?>> classes) {
+		final List<Class<?>> js = new ArrayList<>();
+		final List<Class<?>> css = new ArrayList<>();
+		final List<Class<?>> cssMultis = new ArrayList<>();
+		final List<Class<?>> resources = new ArrayList<>();
+		for (final Class<?> cls : classes) {
+			if (cls.isAnnotationPresent(JsContribution.class)) {
+				js.add(cls);
+			}
+			if (cls.isAnnotationPresent(CssContribution.class)) {
+				css.add(cls);
+			}
+			if (cls.isAnnotationPresent(CssContributions.class)) {
+				cssMultis.add(cls);
+			}
+			if (cls.isAnnotationPresent(ResourceContribution.class)) {
+				resources.add(cls);
+			}
+		}
+		return scan(js, css, cssMultis, resources);
+	}
+
+	private Map<String, SortedSet<WeightedResourceSpec>> scan(final List<Class<?>> js, final List<Class<?>> css, final List<Class<?>> cssMultis, final List<Class<?>> resources) {
 		final Map<String, SortedSet<WeightedResourceSpec>> contributions = new HashMap<>();
 
-		for (final Class<?> cls : resources.getAnnotatedMatches(JsContribution.class)) {
+		for (final Class<?> cls : js) {
 			final JsContribution a = cls.getAnnotation(JsContribution.class);
 			addJsContributions(cls, a, contributions);
 		}
 
-		for (final Class<?> cls : resources.getAnnotatedMatches(CssContribution.class)) {
+		for (final Class<?> cls : css) {
 			final CssContribution a = cls.getAnnotation(CssContribution.class);
 			addCssContributions(cls, a, contributions);
 		}
 
-		for (final Class<?> cls : resources.getAnnotatedMatches(CssContributions.class)) {
+		for (final Class<?> cls : cssMultis) {
 			final CssContributions cssMulti = cls.getAnnotation(CssContributions.class);
-			for (final CssContribution css : cssMulti.value()) {
-				addCssContributions(cls, css, contributions);
+			for (final CssContribution c : cssMulti.value()) {
+				addCssContributions(cls, c, contributions);
 			}
 		}
 
-		for (final Class<?> cls : resources.getAnnotatedMatches(ResourceContribution.class)) {
+		for (final Class<?> cls : resources) {
 			final ResourceContribution resource = cls.getAnnotation(ResourceContribution.class);
 			addResourceContributions(cls, resource, contributions);
 		}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+import org.wicketstuff.mergedresources.ResourceMount;
+
+/**
+ * interface to collect metrics about building and serving merged resources. Use
+ * {@link ResourceMount#setMetrics(org.apache.wicket.Application, IResourceMetrics)} to collect metrics,
+ * {@link NoOpResourceMetrics} is used by default. Implementations must be thread-safe and fast, as they are called
+ * while serving requests.
+ *
+ * @see JmxResourceMetrics
+ */
+public interface IResourceMetrics {
+
+	/**
+	 * @param build
+	 *            a resource was built or rebuilt
+	 */
+	public void built(ResourceBuild build);
+
+	/**
+	 * @param name
+	 *            name of a resource one of whose inputs changed, it will be rebuilt on next access
+	 */
+	public void changed(String name);
+
+	/**
+	 * @param name
+	 *            name of the served resource
+	 * @param compressed
+	 *            whether the gzipped content was served
+	 * @param bytes
+	 *            number of bytes served
+	 */
+	public void served(String name, boolean compressed, long bytes);
+
+	/**
+	 * @param name
+	 *            name of a resource answered with 304 Not Modified
+	 */
+	public void notModified(String name);
+
+	/**
+	 * @param mountPath
+	 *            a request to mountPath was redirected to redirectPath, e.g. from an unversioned to a versioned path
+	 * @param redirectPath
+	 *            path the request was redirected to
+	 */
+	public void redirected(String mountPath, String redirectPath);
+}
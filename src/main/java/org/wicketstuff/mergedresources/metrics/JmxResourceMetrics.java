@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link IResourceMetrics} exposing one {@link ResourceStatsMBean} per resource name (and redirecting mount path).
+ * MBeans are named <code>&lt;domain&gt;:type=MergedResource,application=&lt;application&gt;,name=&lt;name&gt;</code>
+ * and registered on first use. Call {@link #unregister()} when the application is destroyed.
+ */
+public class JmxResourceMetrics implements IResourceMetrics {
+	private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JmxResourceMetrics.class);
+
+	public static final String DEFAULT_DOMAIN = "org.wicketstuff.mergedresources";
+
+	private final MBeanServer _server;
+	private final String _domain;
+	private final String _application;
+	private final ConcurrentMap<String, ResourceStats> _stats = new ConcurrentHashMap<>();
+
+	/**
+	 * use the platform MBeanServer and {@link #DEFAULT_DOMAIN}
+	 *
+	 * @param application
+	 *            name of the application, e.g. {@link org.apache.wicket.Application#getName()}
+	 */
+	public JmxResourceMetrics(final String application) {
+		this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN, application);
+	}
+
+	public JmxResourceMetrics(final MBeanServer server, final String domain, final String application) {
+		if (server == null) {
+			throw new NullPointerException("server");
+		}
+		_server = server;
+		_domain = domain;
+		_application = application;
+	}
+
+	@Override
+	public void built(final ResourceBuild build) {
+		getStats(build.getName()).built(build);
+	}
+
+	@Override
+	public void changed(final String name) {
+		getStats(name).changed();
+	}
+
+	@Override
+	public void served(final String name, final boolean compressed, final long bytes) {
+		getStats(name).served(compressed, bytes);
+	}
+
+	@Override
+	public void notModified(final String name) {
+		getStats(name).notModified();
+	}
+
+	@Override
+	public void redirected(final String mountPath, final String redirectPath) {
+		getStats(mountPath).redirected();
+	}
+
+	/**
+	 * @return stats of a resource, created and registered if missing
+	 */
+	public ResourceStats getStats(final String name) {
+		ResourceStats stats = _stats.get(name);
+		if (stats == null) {
+			final ResourceStats created = new ResourceStats();
+			stats = _stats.putIfAbsent(name, created);
+			if (stats == null) {
+				stats = created;
+				try {
+					_server.registerMBean(created, getObjectName(name));
+				} catch (final JMException e) {
+					log.warn("failed to register MBean for " + name, e);
+				}
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * unregister all MBeans registered by this instance
+	 */
+	public void unregister() {
+		for (final String name : _stats.keySet()) {
+			try {
+				final ObjectName objectName = getObjectName(name);
+				if (_server.isRegistered(objectName)) {
+					_server.unregisterMBean(objectName);
+				}
+			} catch (final JMException e) {
+				log.warn("failed to unregister MBean for " + name, e);
+			}
+		}
+		_stats.clear();
+	}
+
+	protected ObjectName getObjectName(final String name) throws JMException {
+		return new ObjectName(_domain + ":type=MergedResource,application=" + ObjectName.quote(String.valueOf(_application))
+				+ ",name=" + ObjectName.quote(name));
+	}
+}
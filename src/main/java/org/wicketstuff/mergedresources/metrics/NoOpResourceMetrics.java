@@ -0,0 +1,47 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+/**
+ * {@link IResourceMetrics} ignoring everything
+ */
+public final class NoOpResourceMetrics implements IResourceMetrics {
+
+	public static final NoOpResourceMetrics INSTANCE = new NoOpResourceMetrics();
+
+	private NoOpResourceMetrics() {
+	}
+
+	@Override
+	public void built(final ResourceBuild build) {
+	}
+
+	@Override
+	public void changed(final String name) {
+	}
+
+	@Override
+	public void served(final String name, final boolean compressed, final long bytes) {
+	}
+
+	@Override
+	public void notModified(final String name) {
+	}
+
+	@Override
+	public void redirected(final String mountPath, final String redirectPath) {
+	}
+}
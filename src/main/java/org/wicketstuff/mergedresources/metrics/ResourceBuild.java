@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+import java.util.Arrays;
+
+/**
+ * timings and sizes of a single build of a merged resource
+ */
+public final class ResourceBuild {
+
+	public enum Stage {
+		/**
+		 * finding all input resources
+		 */
+		LOCATE,
+		/**
+		 * reading all input resources
+		 */
+		READ,
+		/**
+		 * running preprocessors on single inputs and merged content
+		 */
+		PRE_PROCESS,
+		/**
+		 * minifying merged content, e.g. using a JS or CSS compressor
+		 */
+		MINIFY,
+		/**
+		 * gzipping merged content
+		 */
+		COMPRESS;
+	}
+
+	private final String _name;
+	private final boolean _rebuild;
+	private final boolean _cached;
+	private final long[] _nanos;
+	private final long _inputBytes;
+	private final long _contentBytes;
+	private final long _compressedBytes;
+
+	/**
+	 * @param name
+	 *            name of the resource
+	 * @param rebuild
+	 *            whether the resource was built before
+	 * @param cached
+	 *            whether content was taken from a build cache, skipping {@link Stage#PRE_PROCESS} and
+	 *            {@link Stage#MINIFY}
+	 * @param nanos
+	 *            nanoseconds spent per stage, indexed by {@link Stage#ordinal()}
+	 * @param inputBytes
+	 *            size of all inputs
+	 * @param contentBytes
+	 *            size of the built content
+	 * @param compressedBytes
+	 *            size of the gzipped content, -1 if not compressed
+	 */
+	public ResourceBuild(final String name, final boolean rebuild, final boolean cached, final long[] nanos, final long inputBytes, final long contentBytes, final long compressedBytes) {
+		if (nanos.length != Stage.values().length) {
+			throw new IllegalArgumentException("expected nanos for each stage: " + Arrays.toString(nanos));
+		}
+		_name = name;
+		_rebuild = rebuild;
+		_cached = cached;
+		_nanos = nanos.clone();
+		_inputBytes = inputBytes;
+		_contentBytes = contentBytes;
+		_compressedBytes = compressedBytes;
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	public boolean isRebuild() {
+		return _rebuild;
+	}
+
+	public boolean isCached() {
+		return _cached;
+	}
+
+	public long getNanos(final Stage stage) {
+		return _nanos[stage.ordinal()];
+	}
+
+	public long getTotalNanos() {
+		long total = 0;
+		for (final long nanos : _nanos) {
+			total += nanos;
+		}
+		return total;
+	}
+
+	public long getInputBytes() {
+		return _inputBytes;
+	}
+
+	public long getContentBytes() {
+		return _contentBytes;
+	}
+
+	/**
+	 * @return size of gzipped content, -1 if not compressed
+	 */
+	public long getCompressedBytes() {
+		return _compressedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceBuild [name=" + _name + ", rebuild=" + _rebuild + ", cached=" + _cached + ", nanos="
+				+ Arrays.toString(_nanos) + ", inputBytes=" + _inputBytes + ", contentBytes=" + _contentBytes
+				+ ", compressedBytes=" + _compressedBytes + "]";
+	}
+}
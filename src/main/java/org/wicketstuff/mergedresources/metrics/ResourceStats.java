@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wicketstuff.mergedresources.metrics.ResourceBuild.Stage;
+
+/**
+ * counters of a single resource (or redirecting mount path) collected by {@link JmxResourceMetrics}
+ */
+public class ResourceStats implements ResourceStatsMBean {
+
+	private static final double NANOS_PER_MILLI = 1000000d;
+
+	private final AtomicLong _buildCount = new AtomicLong();
+	private final AtomicLong _rebuildCount = new AtomicLong();
+	private final AtomicLong _cachedBuildCount = new AtomicLong();
+	private final AtomicLong _changeCount = new AtomicLong();
+	private final AtomicLong _servedCount = new AtomicLong();
+	private final AtomicLong _compressedServedCount = new AtomicLong();
+	private final AtomicLong _servedBytes = new AtomicLong();
+	private final AtomicLong _notModifiedCount = new AtomicLong();
+	private final AtomicLong _redirectCount = new AtomicLong();
+	private volatile ResourceBuild _lastBuild;
+
+	void built(final ResourceBuild build) {
+		_buildCount.incrementAndGet();
+		if (build.isRebuild()) {
+			_rebuildCount.incrementAndGet();
+		}
+		if (build.isCached()) {
+			_cachedBuildCount.incrementAndGet();
+		}
+		_lastBuild = build;
+	}
+
+	void changed() {
+		_changeCount.incrementAndGet();
+	}
+
+	void served(final boolean compressed, final long bytes) {
+		_servedCount.incrementAndGet();
+		if (compressed) {
+			_compressedServedCount.incrementAndGet();
+		}
+		if (bytes > 0) {
+			_servedBytes.addAndGet(bytes);
+		}
+	}
+
+	void notModified() {
+		_notModifiedCount.incrementAndGet();
+	}
+
+	void redirected() {
+		_redirectCount.incrementAndGet();
+	}
+
+	@Override
+	public long getBuildCount() {
+		return _buildCount.get();
+	}
+
+	@Override
+	public long getRebuildCount() {
+		return _rebuildCount.get();
+	}
+
+	@Override
+	public long getCachedBuildCount() {
+		return _cachedBuildCount.get();
+	}
+
+	@Override
+	public long getChangeCount() {
+		return _changeCount.get();
+	}
+
+	@Override
+	public double getLastBuildMillis() {
+		final ResourceBuild build = _lastBuild;
+		return build == null ? 0 : build.getTotalNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLastLocateMillis() {
+		return getLastMillis(Stage.LOCATE);
+	}
+
+	@Override
+	public double getLastReadMillis() {
+		return getLastMillis(Stage.READ);
+	}
+
+	@Override
+	public double getLastPreProcessMillis() {
+		return getLastMillis(Stage.PRE_PROCESS);
+	}
+
+	@Override
+	public double getLastMinifyMillis() {
+		return getLastMillis(Stage.MINIFY);
+	}
+
+	@Override
+	public double getLastCompressMillis() {
+		return getLastMillis(Stage.COMPRESS);
+	}
+
+	@Override
+	public long getInputBytes() {
+		final ResourceBuild build = _lastBuild;
+		return build == null ? 0 : build.getInputBytes();
+	}
+
+	@Override
+	public long getContentBytes() {
+		final ResourceBuild build = _lastBuild;
+		return build == null ? 0 : build.getContentBytes();
+	}
+
+	@Override
+	public long getCompressedBytes() {
+		final ResourceBuild build = _lastBuild;
+		return build == null ? -1 : build.getCompressedBytes();
+	}
+
+	@Override
+	public double getCompressionRatio() {
+		final ResourceBuild build = _lastBuild;
+		if (build == null || build.getCompressedBytes() < 0 || build.getContentBytes() == 0) {
+			return -1;
+		}
+		return (double) build.getCompressedBytes() / build.getContentBytes();
+	}
+
+	@Override
+	public long getServedCount() {
+		return _servedCount.get();
+	}
+
+	@Override
+	public long getCompressedServedCount() {
+		return _compressedServedCount.get();
+	}
+
+	@Override
+	public long getServedBytes() {
+		return _servedBytes.get();
+	}
+
+	@Override
+	public long getNotModifiedCount() {
+		return _notModifiedCount.get();
+	}
+
+	@Override
+	public long getRedirectCount() {
+		return _redirectCount.get();
+	}
+
+	private double getLastMillis(final Stage stage) {
+		final ResourceBuild build = _lastBuild;
+		return build == null ? 0 : build.getNanos(stage) / NANOS_PER_MILLI;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+/**
+ * JMX view of {@link ResourceStats}
+ */
+public interface ResourceStatsMBean {
+
+	public long getBuildCount();
+
+	public long getRebuildCount();
+
+	public long getCachedBuildCount();
+
+	public long getChangeCount();
+
+	public double getLastBuildMillis();
+
+	public double getLastLocateMillis();
+
+	public double getLastReadMillis();
+
+	public double getLastPreProcessMillis();
+
+	public double getLastMinifyMillis();
+
+	public double getLastCompressMillis();
+
+	public long getInputBytes();
+
+	public long getContentBytes();
+
+	public long getCompressedBytes();
+
+	/**
+	 * @return compressed bytes divided by content bytes, -1 if not compressed
+	 */
+	public double getCompressionRatio();
+
+	public long getServedCount();
+
+	public long getCompressedServedCount();
+
+	public long getServedBytes();
+
+	public long getNotModifiedCount();
+
+	public long getRedirectCount();
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.preprocess;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+
+import org.wicketstuff.mergedresources.ResourceSpec;
+
+/**
+ * runs several {@link IResourcePreProcessor}s in order. Content is decoded once for consecutive
+ * {@link ITextResourcePreProcessor} stages and encoded once after them, using the charset of a byte order mark, a
+ * leading <code>@charset</code> rule or the chain's default charset.
+ *
+ * Chains are immutable, {@link #add(IResourcePreProcessor)} returns a new chain.
+ */
+public class ResourcePreProcessorChain implements IResourcePreProcessor {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String _defaultCharset;
+	private final IResourcePreProcessor[] _stages;
+
+	public ResourcePreProcessorChain(final IResourcePreProcessor... stages) {
+		this(ResourceText.UTF_8, stages);
+	}
+
+	public ResourcePreProcessorChain(final Charset defaultCharset, final IResourcePreProcessor... stages) {
+		if (defaultCharset == null) {
+			throw new NullPointerException("defaultCharset");
+		}
+		_defaultCharset = defaultCharset.name();
+
+		final List<IResourcePreProcessor> list = new ArrayList<>(stages.length);
+		for (final IResourcePreProcessor stage : stages) {
+			if (stage instanceof ResourcePreProcessorChain) {
+				list.addAll(((ResourcePreProcessorChain) stage).getStages());
+			} else if (stage != null) {
+				list.add(stage);
+			}
+		}
+		_stages = list.toArray(new IResourcePreProcessor[list.size()]);
+	}
+
+	/**
+	 * @return a new chain running stage after the stages of this chain
+	 */
+	public ResourcePreProcessorChain add(final IResourcePreProcessor stage) {
+		final IResourcePreProcessor[] stages = Arrays.copyOf(_stages, _stages.length + 1);
+		stages[_stages.length] = stage;
+		return new ResourcePreProcessorChain(getDefaultCharset(), stages);
+	}
+
+	public List<IResourcePreProcessor> getStages() {
+		return Collections.unmodifiableList(Arrays.asList(_stages));
+	}
+
+	public Charset getDefaultCharset() {
+		return Charset.forName(_defaultCharset);
+	}
+
+	/**
+	 * @param resourceSpec
+	 *            null when processing complete merged resource
+	 * @return charset used for content without byte order mark or <code>@charset</code> rule
+	 */
+	protected Charset getDefaultCharset(@CheckForNull final ResourceSpec resourceSpec) {
+		return getDefaultCharset();
+	}
+
+	@Override
+	public byte[] preProcess(final ResourceSpec resourceSpec, byte[] content) {
+		ResourceText decoded = null;
+		CharSequence text = null;
+		for (final IResourcePreProcessor stage : _stages) {
+			if (stage instanceof ITextResourcePreProcessor) {
+				if (decoded == null) {
+					decoded = ResourceText.decode(content, getDefaultCharset(resourceSpec));
+					text = decoded.getText();
+				}
+				text = ((ITextResourcePreProcessor) stage).preProcessText(resourceSpec, text);
+			} else {
+				if (decoded != null) {
+					content = decoded.encode(text);
+					decoded = null;
+					text = null;
+				}
+				content = stage.preProcess(resourceSpec, content);
+			}
+		}
+		return decoded != null ? decoded.encode(text) : content;
+	}
+
+	/**
+	 * @return stable description of default charset and stages
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder buf = new StringBuilder(getClass().getName()).append('[').append(_defaultCharset);
+		for (final IResourcePreProcessor stage : _stages) {
+			buf.append(',').append(stage.getClass().getName());
+		}
+		return buf.append(']').toString();
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.preprocess;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+
+/**
+ * text decoded from resource content, remembering charset and byte order mark to encode processed text the same way
+ */
+public final class ResourceText {
+
+	public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+	private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+	private static final byte[] NO_BOM = new byte[0];
+
+	private static final byte[] CHARSET_RULE = { '@', 'c', 'h', 'a', 'r', 's', 'e', 't', ' ', '"' };
+	private static final int MAX_CHARSET_NAME = 40;
+
+	private final Charset _charset;
+	private final byte[] _bom;
+	private final CharSequence _text;
+
+	/**
+	 * decode content using the charset detected from a byte order mark, a leading <code>@charset "...";</code> rule
+	 * or defaultCharset
+	 */
+	public static ResourceText decode(final byte[] content, final Charset defaultCharset) {
+		final int bomLength;
+		final Charset charset;
+		if (startsWith(content, 0xEF, 0xBB, 0xBF)) {
+			bomLength = 3;
+			charset = UTF_8;
+		} else if (startsWith(content, 0xFE, 0xFF)) {
+			bomLength = 2;
+			charset = UTF_16BE;
+		} else if (startsWith(content, 0xFF, 0xFE)) {
+			bomLength = 2;
+			charset = UTF_16LE;
+		} else {
+			bomLength = 0;
+			charset = getDeclaredCharset(content, defaultCharset);
+		}
+		final byte[] bom = bomLength == 0 ? NO_BOM : new byte[bomLength];
+		System.arraycopy(content, 0, bom, 0, bomLength);
+		return new ResourceText(charset, bom, new String(content, bomLength, content.length - bomLength, charset));
+	}
+
+	/**
+	 * @return charset of a leading <code>@charset "...";</code> rule or defaultCharset
+	 */
+	static Charset getDeclaredCharset(final byte[] content, final Charset defaultCharset) {
+		for (int i = 0; i < CHARSET_RULE.length; i++) {
+			if (i >= content.length || content[i] != CHARSET_RULE[i]) {
+				return defaultCharset;
+			}
+		}
+		final int start = CHARSET_RULE.length;
+		for (int i = start; i < content.length && i - start <= MAX_CHARSET_NAME; i++) {
+			if (content[i] == '"') {
+				final String name = new String(content, start, i - start, UTF_8);
+				try {
+					return Charset.isSupported(name) ? Charset.forName(name) : defaultCharset;
+				} catch (final IllegalCharsetNameException e) {
+					return defaultCharset;
+				}
+			}
+		}
+		return defaultCharset;
+	}
+
+	private static boolean startsWith(final byte[] content, final int... prefix) {
+		if (content.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if ((content[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private ResourceText(final Charset charset, final byte[] bom, final CharSequence text) {
+		_charset = charset;
+		_bom = bom;
+		_text = text;
+	}
+
+	public Charset getCharset() {
+		return _charset;
+	}
+
+	public CharSequence getText() {
+		return _text;
+	}
+
+	/**
+	 * @return text encoded with this text's charset, prefixed by the original byte order mark if any
+	 */
+	public byte[] encode(final CharSequence text) {
+		if (_bom.length == 0 && text instanceof String) {
+			return ((String) text).getBytes(_charset);
+		}
+		final ByteBuffer buf = _charset.encode(CharBuffer.wrap(text));
+		final byte[] bytes = new byte[_bom.length + buf.remaining()];
+		System.arraycopy(_bom, 0, bytes, 0, _bom.length);
+		buf.get(bytes, _bom.length, buf.remaining());
+		return bytes;
+	}
+}
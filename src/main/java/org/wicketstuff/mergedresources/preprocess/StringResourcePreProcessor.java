@@ -15,17 +15,32 @@
  */
 package org.wicketstuff.mergedresources.preprocess;
 
+import java.nio.charset.Charset;
+
 import javax.annotation.CheckForNull;
 
 import org.wicketstuff.mergedresources.ResourceSpec;
 
-public abstract class StringResourcePreProcessor implements IResourcePreProcessor {
+public abstract class StringResourcePreProcessor implements ITextResourcePreProcessor {
 
 	private static final long serialVersionUID = 1L;
 
 	@Override
 	public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
-		return preProcess(resourceSpec, new String(content)).getBytes();
+		final ResourceText text = ResourceText.decode(content, getDefaultCharset());
+		return text.encode(preProcess(resourceSpec, text.getText().toString()));
+	}
+
+	@Override
+	public CharSequence preProcessText(final ResourceSpec resourceSpec, final CharSequence text) {
+		return preProcess(resourceSpec, text.toString());
+	}
+
+	/**
+	 * @return charset used for content without byte order mark or <code>@charset</code> rule, UTF-8 by default
+	 */
+	protected Charset getDefaultCharset() {
+		return ResourceText.UTF_8;
 	}
 
 	protected abstract String preProcess(@CheckForNull ResourceSpec resourceSpec, String string);
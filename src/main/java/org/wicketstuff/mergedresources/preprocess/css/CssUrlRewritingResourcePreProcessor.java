@@ -15,11 +15,11 @@
  */
 package org.wicketstuff.mergedresources.preprocess.css;
 
-import java.io.File;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.preprocess.ResourceText;
 import org.wicketstuff.mergedresources.preprocess.StringResourcePreProcessor;
 
 /**
@@ -41,94 +41,314 @@ import org.wicketstuff.mergedresources.preprocess.StringResourcePreProcessor;
  * quote (') or double quote ( ") character followed by the URI itself, followed by an optional single quote (') or
  * double quote (" ) character followed by optional white space followed by ')'. The two quote characters must be the
  * same. </blockquote>
+ *
+ * <p>
+ * CSS is scanned once, bytes of ASCII compatible charsets without decoding. Comments and quoted strings are skipped,
+ * <code>@import "..."</code> is rewritten like <code>url(...)</code>, and urls with a scheme (e.g. <code>data:</code>
+ * or <code>http:</code>), protocol relative urls, absolute paths and fragments are left untouched.
+ * </p>
  */
 public class CssUrlRewritingResourcePreProcessor extends StringResourcePreProcessor {
 	private static final long serialVersionUID = 1L;
 
+	private static final Charset UTF_8 = ResourceText.UTF_8;
+
+	private static final String URL = "url(";
+	private static final String IMPORT = "@import";
+
+	private static final int[] NONE = new int[0];
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected String preProcess(final ResourceSpec resourceSpec, final String string) {
-		// Only preprocess partial files with CSS extension
-		if (resourceSpec == null || !resourceSpec.getFile().toLowerCase().endsWith(".css")) {
-			return string;
+	public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+		if (!isCss(resourceSpec)) {
+			return content;
+		}
+		if (content.length >= 2 && (content[0] == (byte) 0xFE || content[0] == (byte) 0xFF)) {
+			// UTF-16 byte order mark, not ASCII compatible
+			return super.preProcess(resourceSpec, content);
 		}
 
-		final StringBuffer processedString = new StringBuffer();
-
-		// Matches urls according to the CSS url specification quoted in javadoc
-		// above.
-		final Pattern pattern = Pattern.compile("(url\\s*\\(\\s*\\\"?\'?)([^\\\\/].*)(\\s*\\\"?\\'?\\))");
-
-		final Matcher urlMatcher = pattern.matcher(string);
-
-		while (urlMatcher.find()) {
-			// Group 1 is the part "url(", starting the url
-			final String start = urlMatcher.group(1);
+		final int[] offsets = scan(new ByteCharSequence(content));
+		if (offsets.length == 0) {
+			return content;
+		}
 
-			// Group 2 is the path, e.g. "test.png"
-			final String path = urlMatcher.group(2);
+		final byte[] basePath = getBasePath(resourceSpec).getBytes(UTF_8);
+		final byte[] out = new byte[content.length + offsets.length * basePath.length];
+		int copied = 0;
+		int pos = 0;
+		for (final int offset : offsets) {
+			System.arraycopy(content, copied, out, pos, offset - copied);
+			pos += offset - copied;
+			System.arraycopy(basePath, 0, out, pos, basePath.length);
+			pos += basePath.length;
+			copied = offset;
+		}
+		System.arraycopy(content, copied, out, pos, content.length - copied);
+		return out;
+	}
 
-			// Group 3 is the part ")", ending the url
-			final String end = urlMatcher.group(3);
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CharSequence preProcessText(final ResourceSpec resourceSpec, final CharSequence text) {
+		if (!isCss(resourceSpec)) {
+			return text;
+		}
 
-			final String replacementString = getFullPath(resourceSpec, path);
+		final int[] offsets = scan(text);
+		if (offsets.length == 0) {
+			return text;
+		}
 
-			urlMatcher.appendReplacement(processedString, Matcher.quoteReplacement(start + replacementString + end));
+		final String basePath = getBasePath(resourceSpec);
+		final StringBuilder out = new StringBuilder(text.length() + offsets.length * basePath.length());
+		int copied = 0;
+		for (final int offset : offsets) {
+			out.append(text, copied, offset).append(basePath);
+			copied = offset;
 		}
+		return out.append(text, copied, text.length());
+	}
 
-		urlMatcher.appendTail(processedString);
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String preProcess(final ResourceSpec resourceSpec, final String string) {
+		return preProcessText(resourceSpec, string).toString();
+	}
 
-		return processedString.toString();
+	/**
+	 * Only preprocess partial files with CSS extension
+	 */
+	private static boolean isCss(final ResourceSpec resourceSpec) {
+		return resourceSpec != null && resourceSpec.getFile().toLowerCase().endsWith(".css");
 	}
 
 	/**
-	 * Get the full path for the given CSS url(). This will replace relative paths with absolute paths. The
-	 * {@link ResourceSpec} is used to get the full path.
+	 * Get the base path prepended to relative CSS urls, e.g. "/resources/com.example.Scope/res/" for a file
+	 * "res/styling.css".
 	 *
 	 * Cannot use Wicket 'urlFor' method, because there is no requestcycle here. Plus it would mount the given
 	 * resourceReference in the application
 	 *
 	 * @param resourceSpec
 	 *            the {@link ResourceSpec} used to get the full path.
-	 * @param path
-	 *            the old (relative) path.
-	 * @return the full path for the resource, Wicket specific.
+	 * @return the base path, Wicket specific.
 	 */
-	private String getFullPath(final ResourceSpec resourceSpec, final String path) {
-		final StringBuilder sb = new StringBuilder();
+	private static String getBasePath(final ResourceSpec resourceSpec) {
+		final String file = resourceSpec.getFile();
+		final String dir = file.substring(0, file.lastIndexOf('/') + 1);
+		return "/resources/" + resourceSpec.getScope().getName() + "/" + dir;
+	}
 
-		// Append "/resources/"
-		sb.append(File.separator).append("resources").append(File.separator);
+	/**
+	 * single pass over css
+	 *
+	 * @return offsets of relative urls in ascending order
+	 */
+	static int[] scan(final CharSequence css) {
+		final int n = css.length();
+
+		int[] offsets = NONE;
+		int count = 0;
 
-		// This will return the full class name of the Scope class (for example
-		// the Panel this
-		// ResourceReference is bound to). In Wicket this is part of the path.
-		sb.append(resourceSpec.getScope().getName());
+		int i = 0;
+		while (i < n) {
+			final char c = css.charAt(i);
 
-		sb.append(File.separator);
+			int valueStart = -1;
+			int valueEnd = -1;
 
-		// If the CSS file is in "res/styling.css", this will return "res/"
-		sb.append(getPath(resourceSpec.getFile()));
+			if (c == '/' && i + 1 < n && css.charAt(i + 1) == '*') {
+				i = skipComment(css, i + 2);
+				continue;
+			} else if (c == '"' || c == '\'') {
+				i = skipString(css, i) + 1;
+				continue;
+			} else if (matches(css, i, URL) && (i == 0 || !isNameChar(css.charAt(i - 1)))) {
+				final int start = skipWhitespace(css, i + URL.length());
+				if (start < n && (css.charAt(start) == '"' || css.charAt(start) == '\'')) {
+					valueStart = start + 1;
+					valueEnd = skipString(css, start);
+					i = valueEnd + 1;
+				} else {
+					valueStart = start;
+					valueEnd = skipUnquoted(css, start);
+					i = valueEnd;
+				}
+			} else if (matches(css, i, IMPORT)) {
+				final int start = skipWhitespace(css, i + IMPORT.length());
+				if (start < n && (css.charAt(start) == '"' || css.charAt(start) == '\'')) {
+					valueStart = start + 1;
+					valueEnd = skipString(css, start);
+					i = valueEnd + 1;
+				} else {
+					// url(...) form or invalid, continue scanning
+					i = start;
+				}
+			} else {
+				i++;
+			}
 
-		// The path of the relative url, for example "test.png"
-		sb.append(path);
+			if (valueStart >= 0 && isRelative(css, valueStart, valueEnd)) {
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, Math.max(8, count * 2));
+				}
+				offsets[count++] = valueStart;
+			}
+		}
 
-		return sb.toString();
+		return count == offsets.length ? offsets : Arrays.copyOf(offsets, count);
 	}
 
 	/**
-	 * Get the path for the given file location string.
-	 *
-	 * @param file
-	 *            the file to get the directory path for
-	 * @return the path.
+	 * @return index after closing "*&#47;" or end of input
+	 */
+	private static int skipComment(final CharSequence css, int i) {
+		final int n = css.length();
+		while (i + 1 < n) {
+			if (css.charAt(i) == '*' && css.charAt(i + 1) == '/') {
+				return i + 2;
+			}
+			i++;
+		}
+		return n;
+	}
+
+	/**
+	 * @param i
+	 *            index of opening quote
+	 * @return index of closing quote or end of input
+	 */
+	private static int skipString(final CharSequence css, int i) {
+		final int n = css.length();
+		final char quote = css.charAt(i++);
+		while (i < n) {
+			final char c = css.charAt(i);
+			if (c == quote || c == '\n') {
+				return i;
+			} else if (c == '\\') {
+				i++;
+			}
+			i++;
+		}
+		return n;
+	}
+
+	/**
+	 * @return index of closing ')', whitespace or end of input
+	 */
+	private static int skipUnquoted(final CharSequence css, int i) {
+		final int n = css.length();
+		while (i < n) {
+			final char c = css.charAt(i);
+			if (c == ')' || isWhitespace(c)) {
+				return i;
+			} else if (c == '\\') {
+				i++;
+			}
+			i++;
+		}
+		return n;
+	}
+
+	private static int skipWhitespace(final CharSequence css, int i) {
+		while (i < css.length() && isWhitespace(css.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * case insensitive match of lower case ASCII token
+	 */
+	private static boolean matches(final CharSequence css, final int i, final String token) {
+		if (i + token.length() > css.length()) {
+			return false;
+		}
+		for (int j = 0; j < token.length(); j++) {
+			final char c = css.charAt(i + j);
+			if (c != token.charAt(j) && (c | 0x20) != token.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * relative unless empty, starting with '/', '\', '#' or having a scheme
+	 */
+	private static boolean isRelative(final CharSequence css, final int start, final int end) {
+		if (start >= end) {
+			return false;
+		}
+		final char first = css.charAt(start);
+		if (first == '/' || first == '\\' || first == '#') {
+			return false;
+		}
+		if (isAlpha(first)) {
+			for (int i = start + 1; i < end; i++) {
+				final char c = css.charAt(i);
+				if (c == ':') {
+					return false;
+				} else if (!isAlpha(c) && !isDigit(c) && c != '+' && c != '-' && c != '.') {
+					break;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+	}
+
+	private static boolean isNameChar(final char c) {
+		return isAlpha(c) || isDigit(c) || c == '-' || c == '_' || c > 0x7F;
+	}
+
+	private static boolean isAlpha(final char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * ISO-8859-1 view of bytes, sufficient to find ASCII tokens in any ASCII compatible charset
 	 */
-	private CharSequence getPath(final String filePath) {
-		final File file = new File(filePath);
-		final String path = file.getPath();
+	private static final class ByteCharSequence implements CharSequence {
+		private final byte[] _bytes;
+
+		private ByteCharSequence(final byte[] bytes) {
+			_bytes = bytes;
+		}
+
+		@Override
+		public int length() {
+			return _bytes.length;
+		}
 
-		return path.subSequence(0, Long.valueOf(path.length() - file.getName().length()).intValue());
+		@Override
+		public char charAt(final int index) {
+			return (char) (_bytes[index] & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return new String(_bytes, Charset.forName("ISO-8859-1"));
+		}
 	}
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+
+/**
+ * {@link InputStream} reading from a {@link ByteBuffer} without copying it. Not thread-safe.
+ */
+final class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer _buffer;
+
+	/**
+	 * @param buffer
+	 *            buffer to read from, position is moved while reading
+	 */
+	ByteBufferInputStream(final ByteBuffer buffer) {
+		_buffer = buffer;
+	}
+
+	@Override
+	public int read() {
+		return _buffer.hasRemaining() ? _buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!_buffer.hasRemaining()) {
+			return -1;
+		}
+		final int n = Math.min(len, _buffer.remaining());
+		_buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) {
+		final int skip = (int) Math.max(0, Math.min(n, _buffer.remaining()));
+		_buffer.position(_buffer.position() + skip);
+		return skip;
+	}
+
+	@Override
+	public int available() {
+		return _buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+		_buffer.mark();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		try {
+			_buffer.reset();
+		} catch (final InvalidMarkException e) {
+			throw new IOException("stream not marked");
+		}
+	}
+}
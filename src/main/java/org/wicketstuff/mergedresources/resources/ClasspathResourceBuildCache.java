@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.wicket.WicketRuntimeException;
+
+import at.molindo.utils.io.StreamUtils;
+
+/**
+ * read-only {@link IResourceBuildCache} serving content exported at build time by {@link ResourceBuildExporter}.
+ * Entries are looked up in the manifest first, hence missing entries don't hit the classpath. Missing or outdated
+ * entries are built at runtime as usual.
+ */
+public class ClasspathResourceBuildCache implements IResourceBuildCache {
+	private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ClasspathResourceBuildCache.class);
+
+	/**
+	 * default classpath location of exported entries
+	 */
+	public static final String DEFAULT_PREFIX = "META-INF/merged-resources/";
+
+	/**
+	 * name of the file listing all exported keys, one per line
+	 */
+	public static final String MANIFEST = "manifest";
+
+	private final ClassLoader _classLoader;
+	private final String _prefix;
+	private final Set<String> _keys;
+
+	public ClasspathResourceBuildCache() {
+		this(ClasspathResourceBuildCache.class.getClassLoader(), DEFAULT_PREFIX);
+	}
+
+	/**
+	 * @param classLoader
+	 *            class loader to load entries from
+	 * @param prefix
+	 *            classpath location of entries, ending with '/'
+	 */
+	public ClasspathResourceBuildCache(final ClassLoader classLoader, final String prefix) {
+		if (classLoader == null) {
+			throw new NullPointerException("classLoader");
+		}
+		if (prefix == null) {
+			throw new NullPointerException("prefix");
+		}
+		_classLoader = classLoader;
+		_prefix = prefix;
+		_keys = readManifest(classLoader, prefix + MANIFEST);
+	}
+
+	private static Set<String> readManifest(final ClassLoader classLoader, final String manifest) {
+		final InputStream in = classLoader.getResourceAsStream(manifest);
+		if (in == null) {
+			log.warn("no exported build cache manifest found at " + manifest);
+			return Collections.emptySet();
+		}
+		try {
+			return Collections.unmodifiableSet(readKeys(in));
+		} catch (final IOException e) {
+			throw new WicketRuntimeException("failed to read build cache manifest " + manifest, e);
+		}
+	}
+
+	/**
+	 * read keys from a manifest, ignoring empty lines and lines starting with '#'
+	 */
+	static Set<String> readKeys(final InputStream in) throws IOException {
+		final Set<String> keys = new HashSet<>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					keys.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return keys;
+	}
+
+	@Override
+	public byte[] get(final String key) {
+		if (!_keys.contains(key)) {
+			return null;
+		}
+		final InputStream in = _classLoader.getResourceAsStream(_prefix + key);
+		if (in == null) {
+			log.warn("exported build cache entry missing: " + _prefix + key);
+			return null;
+		}
+		try {
+			return StreamUtils.bytes(in);
+		} catch (final IOException e) {
+			log.warn("failed to read exported build cache entry " + _prefix + key, e);
+			return null;
+		} finally {
+			StreamUtils.close(in);
+		}
+	}
+
+	/**
+	 * content built at runtime isn't cached
+	 */
+	@Override
+	public void put(final String key, final byte[] content) {
+	}
+
+	/**
+	 * @return an unmodifiable set of all exported keys
+	 */
+	public Set<String> getKeys() {
+		return _keys;
+	}
+}
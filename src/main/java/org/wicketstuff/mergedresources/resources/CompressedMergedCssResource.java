@@ -18,7 +18,6 @@ package org.wicketstuff.mergedresources.resources;
 import java.util.Locale;
 
 import org.apache.wicket.Application;
-import org.apache.wicket.util.resource.IResourceStream;
 import org.wicketstuff.mergedresources.ResourceMount;
 import org.wicketstuff.mergedresources.ResourceSpec;
 import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
@@ -41,8 +40,8 @@ public class CompressedMergedCssResource extends CompressedMergedResource {
 	}
 
 	@Override
-	protected IResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
-		return new MergedResourceStream(specs, locale, style, preProcessor) {
+	protected MergedResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
+		return new MergedResourceStream(specs, locale, style, preProcessor, true) {
 			private static final long serialVersionUID = 1L;
 
 			// still using deprecated stripJavascriptCommentsAndWhitespace
@@ -63,6 +62,14 @@ public class CompressedMergedCssResource extends CompressedMergedResource {
 				}
 			}
 
+			@SuppressWarnings("deprecation")
+			@Override
+			protected String getPipelineKey() {
+				final ICssCompressor compressor = ResourceMount.getCssCompressor(Application.get());
+				return super.getPipelineKey() + ";" + (compressor == null ? null : compressor.getClass().getName())
+						+ ";" + Application.get().getResourceSettings().getStripJavascriptCommentsAndWhitespace();
+			}
+
 			@Override
 			public String getContentType() {
 				return "text/css";
@@ -19,7 +19,6 @@ import java.util.Locale;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.javascript.IJavascriptCompressor;
-import org.apache.wicket.util.resource.IResourceStream;
 import org.wicketstuff.mergedresources.ResourceSpec;
 import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
 
@@ -42,8 +41,8 @@ public class CompressedMergedJsResource extends CompressedMergedResource {
 	}
 
 	@Override
-	protected IResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
-		return new MergedResourceStream(specs, locale, style, preProcessor) {
+	protected MergedResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
+		return new MergedResourceStream(specs, locale, style, preProcessor, true) {
 			private static final long serialVersionUID = 1L;
 
 			@Override
@@ -61,6 +60,13 @@ public class CompressedMergedJsResource extends CompressedMergedResource {
 				}
 			}
 
+			@Override
+			protected String getPipelineKey() {
+				final IJavascriptCompressor compressor = Application.get().getResourceSettings()
+						.getJavascriptCompressor();
+				return super.getPipelineKey() + ";" + (compressor == null ? null : compressor.getClass().getName());
+			}
+
 			@Override
 			public String getContentType() {
 				return "application/x-javascript";
@@ -18,20 +18,19 @@ package org.wicketstuff.mergedresources.resources;
 import java.util.Locale;
 
 import org.apache.wicket.Application;
-import org.apache.wicket.markup.html.CompressedPackageResource;
 import org.apache.wicket.protocol.http.WebResponse;
-import org.apache.wicket.util.resource.IResourceStream;
 import org.wicketstuff.mergedresources.ResourceSpec;
 import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
 
-public class CompressedMergedResource extends CompressedPackageResource {
+/**
+ * a {@link MergedResource} that serves a gzipped copy of its content to clients accepting it. The gzipped copy is
+ * built once together with the merged content (see {@link MergedResourceStream#getCompressedResourceStream()}) rather
+ * than on every cache miss.
+ */
+public class CompressedMergedResource extends MergedResource {
 
 	private static final long serialVersionUID = 1L;
 
-	private final IResourceStream _mergedResourceStream;
-
-	private final int _cacheDuration;
-
 	/**
 	 * @deprecated use ResourceSpec[] instead of scopes[] and files[]
 	 */
@@ -41,23 +40,26 @@ public class CompressedMergedResource extends CompressedPackageResource {
 	}
 
 	public CompressedMergedResource(final Class<?> scope, final String path, final Locale locale, final String style, final ResourceSpec[] specs, final int cacheDuration, final IResourcePreProcessor preProcessor) {
-		super(scope, path, locale, style);
-		_cacheDuration = cacheDuration;
-		_mergedResourceStream = newResourceStream(locale, style, specs, preProcessor);
+		super(scope, path, locale, style, specs, cacheDuration, preProcessor);
 	}
 
-	protected IResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
-		return new MergedResourceStream(specs, locale, style, preProcessor);
+	@Override
+	protected MergedResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
+		return new MergedResourceStream(specs, locale, style, preProcessor, true);
 	}
 
 	@Override
-	protected IResourceStream getPackageResourceStream() {
-		return _mergedResourceStream;
+	protected MergedResourceStream.Snapshot selectResourceStream() {
+		return supportsCompression() ? getSnapshot().getCompressedResourceStream() : getSnapshot();
 	}
 
+	/**
+	 * @return the entity tag of the identity representation, suffixed with -gzip for the gzipped representation
+	 */
 	@Override
-	public int getCacheDuration() {
-		return _cacheDuration;
+	protected String getEntityTag() {
+		final String tag = super.getEntityTag();
+		return supportsCompression() ? tag.substring(0, tag.length() - 1) + "-gzip\"" : tag;
 	}
 
 	@Override
@@ -66,6 +68,56 @@ public class CompressedMergedResource extends CompressedPackageResource {
 		if (!Application.get().getResourceSettings().getDisableGZipCompression()) {
 			response.setHeader("Vary", "Accept-Encoding");
 		}
-		response.setHeader("Cache-control", "public");
+		if (supportsCompression() && !isNotModified()) {
+			response.setHeader("Content-Encoding", "gzip");
+		}
+	}
+
+	/**
+	 * @return whether the current request accepts gzip and gzip compression isn't disabled. <code>false</code> outside
+	 *         of a request
+	 */
+	protected boolean supportsCompression() {
+		if (Application.get().getResourceSettings().getDisableGZipCompression()) {
+			return false;
+		}
+		return acceptsGzip(getRequestHeader("Accept-Encoding"));
+	}
+
+	/**
+	 * @param acceptEncoding
+	 *            value of an Accept-Encoding header, may be <code>null</code>
+	 * @return <code>true</code> if gzip (or a wildcard) is listed with a non-zero quality
+	 */
+	public static boolean acceptsGzip(final String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Boolean wildcard = null;
+		for (final String coding : acceptEncoding.split(",")) {
+			final int semicolon = coding.indexOf(';');
+			final String name = (semicolon >= 0 ? coding.substring(0, semicolon) : coding).trim();
+			final boolean accepted = semicolon < 0 || !isZeroQuality(coding.substring(semicolon + 1));
+			if ("gzip".equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+				return accepted;
+			} else if ("*".equals(name)) {
+				wildcard = accepted;
+			}
+		}
+		return Boolean.TRUE.equals(wildcard);
+	}
+
+	private static boolean isZeroQuality(final String params) {
+		for (final String param : params.split(";")) {
+			final String p = param.trim();
+			if (p.startsWith("q=") || p.startsWith("Q=")) {
+				try {
+					return Float.parseFloat(p.substring(2).trim()) <= 0f;
+				} catch (final NumberFormatException e) {
+					return false;
+				}
+			}
+		}
+		return false;
 	}
 }
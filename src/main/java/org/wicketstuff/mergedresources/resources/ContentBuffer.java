@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * growable buffer that reads streams directly into its backing array and hands out that array without copying if
+ * sized exactly. Not thread-safe.
+ */
+final class ContentBuffer extends ByteArrayOutputStream {
+
+	private static final int DEFAULT_SIZE = 4096;
+
+	/**
+	 * @param sizeHint
+	 *            expected size, a default is used if negative or 0
+	 */
+	ContentBuffer(final long sizeHint) {
+		super(sizeHint > 0 && sizeHint < Integer.MAX_VALUE ? (int) sizeHint : DEFAULT_SIZE);
+	}
+
+	/**
+	 * read a stream completely
+	 *
+	 * @param in
+	 *            the stream, won't be closed
+	 * @param lengthHint
+	 *            expected length of the stream, e.g. {@link org.apache.wicket.util.resource.IResourceStream#length()}
+	 * @return the content of the stream
+	 */
+	static byte[] read(final InputStream in, final long lengthHint) throws IOException {
+		final ContentBuffer buffer = new ContentBuffer(lengthHint);
+		buffer.readFrom(in, lengthHint);
+		return buffer.materialize();
+	}
+
+	/**
+	 * append the remaining content of a stream
+	 *
+	 * @param in
+	 *            the stream, won't be closed
+	 * @param lengthHint
+	 *            expected length of the stream, ignored if negative
+	 */
+	void readFrom(final InputStream in, final long lengthHint) throws IOException {
+		if (lengthHint > 0) {
+			ensureCapacity(count + lengthHint);
+		}
+		int read;
+		while ((read = in.read(buf, count, buf.length - count)) != -1) {
+			count += read;
+			if (count == buf.length) {
+				// stream may be at its end, probe before growing
+				final int b = in.read();
+				if (b == -1) {
+					break;
+				}
+				ensureCapacity(count + 1L);
+				buf[count++] = (byte) b;
+			}
+		}
+	}
+
+	/**
+	 * @return the buffered content, the backing array itself if sized exactly. The buffer must not be written to
+	 *         afterwards
+	 */
+	byte[] materialize() {
+		return count == buf.length ? buf : Arrays.copyOf(buf, count);
+	}
+
+	private void ensureCapacity(final long capacity) {
+		if (capacity > buf.length) {
+			if (capacity > Integer.MAX_VALUE - 8) {
+				throw new OutOfMemoryError("content too large");
+			}
+			buf = Arrays.copyOf(buf, (int) Math.max(capacity, Math.min(buf.length * 2L, Integer.MAX_VALUE - 8)));
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * keeps content in direct {@link ByteBuffer}s outside of the heap. Long-lived content of many bundles (and their
+ * locale, style and gzip variants) therefore doesn't end up in the old generation. Direct memory is limited by
+ * -XX:MaxDirectMemorySize.
+ */
+public class DirectResourceContentStore implements IResourceContentStore {
+
+	private static final int WRITE_CHUNK_SIZE = 8192;
+
+	@Override
+	public IResourceContent store(final byte[] content) {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+		buffer.put(content).flip();
+		return new DirectResourceContent(buffer.asReadOnlyBuffer());
+	}
+
+	private static final class DirectResourceContent implements IResourceContent {
+		private final ByteBuffer _buffer;
+
+		private DirectResourceContent(final ByteBuffer buffer) {
+			_buffer = buffer;
+		}
+
+		@Override
+		public int length() {
+			return _buffer.remaining();
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteBufferInputStream(_buffer.duplicate());
+		}
+
+		@Override
+		public void writeTo(final OutputStream out) throws IOException {
+			final ByteBuffer buffer = _buffer.duplicate();
+			final byte[] chunk = new byte[Math.min(WRITE_CHUNK_SIZE, buffer.remaining())];
+			while (buffer.hasRemaining()) {
+				final int len = Math.min(chunk.length, buffer.remaining());
+				buffer.get(chunk, 0, len);
+				out.write(chunk, 0, len);
+			}
+		}
+	}
+}
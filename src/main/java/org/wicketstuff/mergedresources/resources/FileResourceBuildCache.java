@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.wicket.WicketRuntimeException;
+
+import at.molindo.utils.io.FileUtils;
+
+/**
+ * {@link IResourceBuildCache} keeping built content in files of a directory. Entries are never removed, as their keys
+ * change with their inputs anyway. Failing to read or write an entry is logged and treated like a cache miss.
+ */
+public class FileResourceBuildCache implements IResourceBuildCache {
+	private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileResourceBuildCache.class);
+
+	private final File _directory;
+
+	/**
+	 * @param directory
+	 *            cache directory, created if missing
+	 */
+	public FileResourceBuildCache(final File directory) {
+		if (directory == null) {
+			throw new NullPointerException("directory");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new WicketRuntimeException("failed to create build cache directory " + directory);
+		}
+		_directory = directory;
+	}
+
+	@Override
+	public byte[] get(final String key) {
+		final File file = file(key);
+		try {
+			return FileUtils.bytes(file);
+		} catch (final FileNotFoundException e) {
+			return null;
+		} catch (final IOException e) {
+			log.warn("failed to read build cache entry " + file, e);
+			return null;
+		}
+	}
+
+	@Override
+	public void put(final String key, final byte[] content) {
+		final File file = file(key);
+		File tmp = null;
+		try {
+			// write to a temporary file first, other nodes might share the directory
+			tmp = File.createTempFile(key, ".tmp", _directory);
+			final FileOutputStream out = new FileOutputStream(tmp);
+			try {
+				out.write(content);
+			} finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			tmp = null;
+		} catch (final IOException e) {
+			log.warn("failed to write build cache entry " + file, e);
+		} finally {
+			if (tmp != null && !tmp.delete()) {
+				tmp.deleteOnExit();
+			}
+		}
+	}
+
+	public File getDirectory() {
+		return _directory;
+	}
+
+	private File file(final String key) {
+		return new File(_directory, key);
+	}
+}
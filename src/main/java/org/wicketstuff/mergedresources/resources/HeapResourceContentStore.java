@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * keeps content in byte arrays on the heap
+ */
+public class HeapResourceContentStore implements IResourceContentStore {
+
+	@Override
+	public IResourceContent store(final byte[] content) {
+		return new HeapResourceContent(content);
+	}
+
+	private static final class HeapResourceContent implements IResourceContent {
+		private final byte[] _content;
+
+		private HeapResourceContent(final byte[] content) {
+			_content = content;
+		}
+
+		@Override
+		public int length() {
+			return _content.length;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(_content);
+		}
+
+		@Override
+		public void writeTo(final OutputStream out) throws IOException {
+			out.write(_content);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import org.wicketstuff.mergedresources.ResourceMount;
+
+/**
+ * interface to reuse merged, preprocessed and minified content across restarts. Use
+ * {@link ResourceMount#setBuildCache(org.apache.wicket.Application, IResourceBuildCache)} to use a build cache
+ *
+ * @see FileResourceBuildCache
+ */
+public interface IResourceBuildCache {
+
+	/**
+	 * @param key
+	 *            hex encoded digest of all inputs and the pipeline configuration
+	 * @return cached content or <code>null</code> if missing
+	 */
+	public byte[] get(String key);
+
+	/**
+	 * @param key
+	 *            hex encoded digest of all inputs and the pipeline configuration
+	 * @param content
+	 *            the built content
+	 */
+	public void put(String key, byte[] content);
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * immutable content stored by an {@link IResourceContentStore}
+ */
+public interface IResourceContent {
+
+	/**
+	 * @return length of content in bytes
+	 */
+	public int length();
+
+	/**
+	 * @return a new stream reading the content without copying it
+	 */
+	public InputStream getInputStream();
+
+	/**
+	 * @param out
+	 *            stream to write the content to, won't be closed
+	 */
+	public void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import org.wicketstuff.mergedresources.ResourceMount;
+
+/**
+ * interface to choose where merged content is kept. Use
+ * {@link ResourceMount#setContentStore(org.apache.wicket.Application, IResourceContentStore)} to use a content store,
+ * {@link HeapResourceContentStore} is used by default
+ */
+public interface IResourceContentStore {
+
+	/**
+	 * @param content
+	 *            the content to store, must not be modified afterwards
+	 * @return the stored content
+	 */
+	public IResourceContent store(byte[] content);
+}
@@ -15,23 +15,49 @@
  */
 package org.wicketstuff.mergedresources.resources;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Locale;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Request;
+import org.apache.wicket.RequestCycle;
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.markup.html.PackageResource;
+import org.apache.wicket.protocol.http.WebRequest;
 import org.apache.wicket.protocol.http.WebResponse;
 import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.IResourceStreamWriter;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.time.Time;
+import org.wicketstuff.mergedresources.ResourceMount;
 import org.wicketstuff.mergedresources.ResourceSpec;
 import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
 
+import at.molindo.utils.io.StreamUtils;
+
 public class MergedResource extends PackageResource {
 
 	private static final long serialVersionUID = 1L;
 
+	private static final MetaDataKey<MergedResourceStream.Snapshot> SNAPSHOT_KEY = new MetaDataKey<MergedResourceStream.Snapshot>() {
+		private static final long serialVersionUID = 1L;
+	};
+
 	private final MergedResourceStream _mergedResourceStream;
 
 	private final int _cacheDuration;
 
+	private final String _name;
+
+	private volatile String _sourceMapUrl;
+
 	/**
 	 * @deprecated use ResourceSpec[] instead of scopes[] and files[]
 	 */
@@ -44,19 +70,120 @@ public class MergedResource extends PackageResource {
 					+ Arrays.toString(files));
 		}
 		_cacheDuration = cacheDuration;
-		_mergedResourceStream = new MergedResourceStream(scopes, files, locale, style);
+		_name = scope.getName() + "/" + path;
+		_mergedResourceStream = newResourceStream(locale, style, ResourceSpec.toResourceSpecs(scopes, files), null);
+		_mergedResourceStream.setName(_name);
 	}
 
 	public MergedResource(final Class<?> scope, final String path, final Locale locale, final String style, final ResourceSpec[] specs, final int cacheDuration, final IResourcePreProcessor preProcessor) {
 		super(scope, path, locale, style);
 
 		_cacheDuration = cacheDuration;
-		_mergedResourceStream = new MergedResourceStream(specs, locale, style, preProcessor);
+		_name = scope.getName() + "/" + path;
+		_mergedResourceStream = newResourceStream(locale, style, specs, preProcessor);
+		_mergedResourceStream.setName(_name);
+	}
+
+	protected MergedResourceStream newResourceStream(final Locale locale, final String style, final ResourceSpec[] specs, final IResourcePreProcessor preProcessor) {
+		return new MergedResourceStream(specs, locale, style, preProcessor);
+	}
+
+	/**
+	 * @return name used for metrics, scope and path
+	 */
+	public final String getName() {
+		return _name;
+	}
+
+	public final MergedResourceStream getMergedResourceStream() {
+		return _mergedResourceStream;
+	}
+
+	/**
+	 * @return URL of the source map relative to this resource, <code>null</code> if disabled
+	 */
+	public final String getSourceMapUrl() {
+		return _sourceMapUrl;
+	}
+
+	/**
+	 * build a source map together with the merged content and reference it using a SourceMap header
+	 *
+	 * @param sourceMapUrl
+	 *            URL of the source map relative to this resource, e.g. "all.js.map", or <code>null</code> to disable
+	 * @see SourceMapResource
+	 */
+	public void setSourceMapUrl(final String sourceMapUrl) {
+		_sourceMapUrl = sourceMapUrl;
+		_mergedResourceStream.setSourceMap(sourceMapUrl != null);
 	}
 
+	/**
+	 * build merged content and all of its representations ahead of the first request
+	 *
+	 * @see MergedResourceStream#prepare()
+	 */
+	public void prepare() {
+		_mergedResourceStream.prepare();
+	}
+
+	/**
+	 * answers requests carrying a matching If-None-Match header with an empty stream (and a 304 status, see
+	 * {@link #setHeaders(WebResponse)}) without ever opening the merged content. Once a client revalidates by entity
+	 * tag, the last modified time isn't exposed anymore as it's the max over all inputs and might be equal for
+	 * different builds.
+	 */
 	@Override
 	public IResourceStream getResourceStream() {
-		return _mergedResourceStream;
+		final IResourceStream stream = selectResourceStream();
+		final String ifNoneMatch = getRequestHeader("If-None-Match");
+		if (ifNoneMatch == null) {
+			return stream;
+		}
+		return new RevalidatedResourceStream(stream, matchesEntityTag(ifNoneMatch, getEntityTag()));
+	}
+
+	/**
+	 * @return the representation of the merged content to serve for the current request, taken from
+	 *         {@link #getSnapshot()}
+	 */
+	protected MergedResourceStream.Snapshot selectResourceStream() {
+		return getSnapshot();
+	}
+
+	/**
+	 * the build of the merged content served for the current request. Taken once per request so that entity tag,
+	 * length and body don't disagree if the content is rebuilt meanwhile.
+	 *
+	 * @return the snapshot of the current request or a new one outside of a request
+	 */
+	protected final MergedResourceStream.Snapshot getSnapshot() {
+		final RequestCycle cycle = RequestCycle.get();
+		if (cycle == null) {
+			return _mergedResourceStream.snapshot();
+		}
+		MergedResourceStream.Snapshot snapshot = cycle.getMetaData(SNAPSHOT_KEY);
+		if (snapshot == null || snapshot.getMergedResourceStream() != _mergedResourceStream) {
+			snapshot = _mergedResourceStream.snapshot();
+			cycle.setMetaData(SNAPSHOT_KEY, snapshot);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return strong entity tag of the representation served for the current request, derived from the digest of the
+	 *         merged content
+	 */
+	protected String getEntityTag() {
+		return '"' + getSnapshot().getDigest() + '"';
+	}
+
+	/**
+	 * @return whether the current request carries an If-None-Match header matching {@link #getEntityTag()}
+	 */
+	protected boolean isNotModified() {
+		final String ifNoneMatch = getRequestHeader("If-None-Match");
+		return ifNoneMatch != null && matchesEntityTag(ifNoneMatch, getEntityTag());
 	}
 
 	@Override
@@ -68,5 +195,137 @@ public class MergedResource extends PackageResource {
 	protected void setHeaders(final WebResponse response) {
 		super.setHeaders(response);
 		response.setHeader("Cache-control", "public");
+		response.setHeader("ETag", getEntityTag());
+		if (isNotModified()) {
+			response.getHttpServletResponse().setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			ResourceMount.getMetrics(Application.get()).notModified(_name);
+		} else {
+			final MergedResourceStream.Snapshot snapshot = getSnapshot();
+			if (isCacheable()) {
+				// not set by Resource for revalidated streams
+				response.setLastModifiedTime(snapshot.lastModifiedTime());
+			}
+			final String sourceMapUrl = _sourceMapUrl;
+			if (sourceMapUrl != null && snapshot.getSourceMap() != null) {
+				response.setHeader("SourceMap", sourceMapUrl);
+			}
+			final MergedResourceStream.Snapshot stream = selectResourceStream();
+			ResourceMount.getMetrics(Application.get()).served(_name, stream.isGzip(), stream.length());
+		}
+	}
+
+	/**
+	 * @param name
+	 *            name of the header
+	 * @return the value of the header of the current request, <code>null</code> if missing or outside of a request
+	 */
+	protected static String getRequestHeader(final String name) {
+		final RequestCycle cycle = RequestCycle.get();
+		final Request request = cycle == null ? null : cycle.getRequest();
+		if (!(request instanceof WebRequest)) {
+			return null;
+		}
+		return ((WebRequest) request).getHttpServletRequest().getHeader(name);
+	}
+
+	/**
+	 * weak comparison of an If-None-Match header against an entity tag, i.e. W/ prefixes are ignored
+	 * 
+	 * @param ifNoneMatch
+	 *            value of an If-None-Match header, may be <code>null</code>
+	 * @param entityTag
+	 *            quoted entity tag
+	 * @return <code>true</code> if the header is * or lists the entity tag
+	 */
+	public static boolean matchesEntityTag(final String ifNoneMatch, final String entityTag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		final String opaque = stripWeak(entityTag);
+		for (final String tag : ifNoneMatch.split(",")) {
+			final String t = tag.trim();
+			if ("*".equals(t) || opaque.equals(stripWeak(t))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeak(final String tag) {
+		return tag.startsWith("W/") || tag.startsWith("w/") ? tag.substring(2) : tag;
+	}
+
+	/**
+	 * stream for requests revalidating by entity tag. Doesn't expose a last modified time in order to keep
+	 * If-Modified-Since from taking precedence over If-None-Match. If not modified, nothing is served.
+	 */
+	private static final class RevalidatedResourceStream implements IResourceStreamWriter {
+		private static final long serialVersionUID = 1L;
+
+		private final IResourceStream _stream;
+		private final boolean _notModified;
+
+		private RevalidatedResourceStream(final IResourceStream stream, final boolean notModified) {
+			_stream = stream;
+			_notModified = notModified;
+		}
+
+		@Override
+		public void close() throws IOException {
+			_stream.close();
+		}
+
+		@Override
+		public String getContentType() {
+			return _stream.getContentType();
+		}
+
+		@Override
+		public InputStream getInputStream() throws ResourceStreamNotFoundException {
+			return _notModified ? new ByteArrayInputStream(new byte[0]) : _stream.getInputStream();
+		}
+
+		@Override
+		public Locale getLocale() {
+			return _stream.getLocale();
+		}
+
+		@Override
+		public long length() {
+			return _notModified ? -1 : _stream.length();
+		}
+
+		@Override
+		public void write(final OutputStream output) {
+			if (_notModified) {
+				return;
+			}
+			if (_stream instanceof IResourceStreamWriter) {
+				((IResourceStreamWriter) _stream).write(output);
+			} else {
+				try {
+					final InputStream in = _stream.getInputStream();
+					try {
+						StreamUtils.copy(in, output);
+					} finally {
+						in.close();
+					}
+				} catch (final IOException e) {
+					throw new WicketRuntimeException("failed to write resource", e);
+				} catch (final ResourceStreamNotFoundException e) {
+					throw new WicketRuntimeException("did not find resource", e);
+				}
+			}
+		}
+
+		@Override
+		public void setLocale(final Locale locale) {
+			_stream.setLocale(locale);
+		}
+
+		@Override
+		public Time lastModifiedTime() {
+			return null;
+		}
 	}
 }
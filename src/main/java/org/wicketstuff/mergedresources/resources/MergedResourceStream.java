@@ -15,40 +15,64 @@
  */
 package org.wicketstuff.mergedresources.resources;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.IClusterable;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.util.listener.IChangeListener;
 import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.IResourceStreamWriter;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.locator.ResourceNameIterator;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Time;
 import org.apache.wicket.util.watch.IModificationWatcher;
+import org.wicketstuff.mergedresources.ResourceMount;
 import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.metrics.IResourceMetrics;
+import org.wicketstuff.mergedresources.metrics.ResourceBuild;
+import org.wicketstuff.mergedresources.metrics.ResourceBuild.Stage;
 import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
+import org.wicketstuff.mergedresources.preprocess.ResourcePreProcessorChain;
 
-import at.molindo.utils.io.StreamUtils;
+import at.molindo.utils.crypto.CryptoUtils;
+import at.molindo.utils.crypto.DigestAlgorithm;
+import at.molindo.utils.crypto.IDigest;
 
-public class MergedResourceStream implements IResourceStream {
+/**
+ * merged content of multiple resources. Implements {@link IResourceStreamWriter} in order to write the built content
+ * directly to the response instead of copying it through an {@link InputStream}.
+ */
+public class MergedResourceStream implements IResourceStreamWriter {
 	private static final long serialVersionUID = 1L;
 	private static transient final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MergedResourceStream.class);
 
+	private static final String BUILD_KEY_VERSION = "2";
+	private static final IResourceContentStore DEFAULT_CONTENT_STORE = new HeapResourceContentStore();
+
 	private final ResourceSpec[] _specs;
 	private Locale _locale;
 	private final String _style;
-	private LocalizedMergedResourceStream _localizedMergedResourceStream;
+	private transient volatile LocalizedMergedResourceStream _localizedMergedResourceStream;
+	private volatile boolean _stale;
+	private final ReentrantLock _buildLock = new ReentrantLock();
 	private final IResourcePreProcessor _preProcessor;
+	private final boolean _compressed;
+	private volatile boolean _sourceMap;
+	private volatile boolean _sourceMapWarned;
+	private String _name;
 
 	/**
 	 * @deprecated use ResourceSpec[] instead of scopes[] and files[]
@@ -59,10 +83,20 @@ public class MergedResourceStream implements IResourceStream {
 	}
 
 	public MergedResourceStream(final ResourceSpec[] specs, final Locale locale, final String style, final IResourcePreProcessor preProcessor) {
+		this(specs, locale, style, preProcessor, false);
+	}
+
+	/**
+	 * @param compressed
+	 *            whether a gzipped copy of the merged content should be built and retained alongside the content
+	 * @see #getCompressedResourceStream()
+	 */
+	public MergedResourceStream(final ResourceSpec[] specs, final Locale locale, final String style, final IResourcePreProcessor preProcessor, final boolean compressed) {
 		_specs = specs.clone();
 		_locale = locale;
 		_style = style;
 		_preProcessor = preProcessor;
+		_compressed = compressed;
 	}
 
 	@Override
@@ -85,9 +119,14 @@ public class MergedResourceStream implements IResourceStream {
 		return _locale;
 	}
 
+	@Override
+	public void write(final OutputStream output) {
+		write(getLocalizedMergedResourceStream().getContent(), output);
+	}
+
 	@Override
 	public long length() {
-		return getLocalizedMergedResourceStream().getContent().length;
+		return getLocalizedMergedResourceStream().getContent().length();
 	}
 
 	@Override
@@ -100,78 +139,452 @@ public class MergedResourceStream implements IResourceStream {
 		return getLocalizedMergedResourceStream().getLastModifiedTime();
 	}
 
+	/**
+	 * build merged content ahead of the first request, including the gzipped copy if compressed. Neither depends on
+	 * the current request or application settings, so it's safe to call this concurrently to requests.
+	 */
+	public void prepare() {
+		getLocalizedMergedResourceStream();
+	}
+
+	/**
+	 * @return hex encoded SHA-256 digest of the final (preprocessed and minified) content
+	 */
+	public String getDigest() {
+		return getLocalizedMergedResourceStream().getDigest();
+	}
+
+	/**
+	 * @return whether a source map is built together with the merged content
+	 */
+	public boolean isSourceMap() {
+		return _sourceMap;
+	}
+
+	/**
+	 * build a Source Map v3 index map with the merged content, rebuilding content already built without
+	 *
+	 * @see #getSourceMap()
+	 */
+	public void setSourceMap(final boolean sourceMap) {
+		if (_sourceMap != sourceMap) {
+			_sourceMap = sourceMap;
+			if (_localizedMergedResourceStream != null) {
+				_stale = true;
+			}
+		}
+	}
+
+	/**
+	 * @return JSON of the index map mapping merged content back to its files, <code>null</code> if not enabled or if
+	 *         the complete merged content was processed (e.g. minified) after concatenating its files
+	 */
+	public byte[] getSourceMap() {
+		return getLocalizedMergedResourceStream().getSourceMapContent();
+	}
+
+	/**
+	 * @return name used for metrics, the name of the owning {@link MergedResource} or the first spec if not owned
+	 */
+	public String getName() {
+		if (_name != null) {
+			return _name;
+		}
+		return _specs.length == 0 ? "" : _specs[0].getScope().getName() + "/" + _specs[0].getFile();
+	}
+
+	void setName(final String name) {
+		_name = name;
+	}
+
+	/**
+	 * @return whether a gzipped copy of the merged content is retained
+	 */
+	public boolean isCompressed() {
+		return _compressed;
+	}
+
+	/**
+	 * @return a view of this stream serving the gzipped content that is built once together with the merged content
+	 * @throws IllegalStateException
+	 *             if this stream wasn't created as compressed
+	 */
+	public IResourceStream getCompressedResourceStream() {
+		if (!_compressed) {
+			throw new IllegalStateException("merged resource stream isn't compressed");
+		}
+		return new CompressedResourceStream();
+	}
+
+	/**
+	 * @return a view of the current build only, i.e. digest, length and content stay consistent even if the merged
+	 *         content is rebuilt while serving it
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(getLocalizedMergedResourceStream(), false);
+	}
+
+	/**
+	 * content is published through a volatile field, hence readers don't lock once it's built. After a change, a
+	 * single thread rebuilds it while all others keep serving the stale content.
+	 */
 	private LocalizedMergedResourceStream getLocalizedMergedResourceStream() {
-		synchronized (this) {
-			if (_localizedMergedResourceStream == null) {
-				_localizedMergedResourceStream = new LocalizedMergedResourceStream();
+		final LocalizedMergedResourceStream stream = _localizedMergedResourceStream;
+		if (stream == null) {
+			_buildLock.lock();
+			try {
+				if (_localizedMergedResourceStream == null) {
+					_stale = false;
+					_localizedMergedResourceStream = new LocalizedMergedResourceStream(null);
+				}
+				return _localizedMergedResourceStream;
+			} finally {
+				_buildLock.unlock();
+			}
+		} else if (_stale && _buildLock.tryLock()) {
+			try {
+				if (_stale) {
+					_stale = false;
+					try {
+						_localizedMergedResourceStream = new LocalizedMergedResourceStream(_localizedMergedResourceStream);
+					} catch (final RuntimeException e) {
+						_stale = true;
+						throw e;
+					}
+				}
+				return _localizedMergedResourceStream;
+			} finally {
+				_buildLock.unlock();
 			}
-			return _localizedMergedResourceStream;
 		}
+		return stream;
 	}
 
 	private final class LocalizedMergedResourceStream implements IClusterable {
 		private static final long serialVersionUID = 1L;
-		private final byte[] _content;
+		private final IResourceContent _content;
+		private final IResourceContent _compressedContent;
+		private final String _digest;
 		private final String _contentType;
 		private final Time _lastModifiedTime;
+		private final transient Segment[] _segments;
+		private final byte[] _sourceMapContent;
+
+		/**
+		 * @param previous
+		 *            content to rebuild, segments of unchanged specs are reused
+		 */
+		private LocalizedMergedResourceStream(final LocalizedMergedResourceStream previous) {
+			final long[] nanos = new long[Stage.values().length];
+			long start = System.nanoTime();
+			long inputBytes = 0;
+			boolean hit = false;
 
-		private LocalizedMergedResourceStream() {
-			Time max = null;
-			// final StringWriter w = new StringWriter(4096);
-			final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
-
-			final ArrayList<IResourceStream> resourceStreams = new ArrayList<>(_specs.length);
-
-			String contentType = null;
-			for (int i = 0; i < _specs.length; i++) {
-				final Class<?> scope = _specs[i].getScope();
-				final String fileName = _specs[i].getFile();
-
-				final IResourceStream resourceStream = findResourceStream(scope, fileName);
-				if (contentType != null) {
-					if (resourceStream.getContentType() != null
-							&& !contentType.equalsIgnoreCase(resourceStream.getContentType())) {
-						log.warn("content types of merged resources don't match: '" + resourceStream.getContentType()
-								+ "' and '" + contentType + "'");
+			final IModificationWatcher watcher = Application.get().getResourceSettings().getResourceWatcher(true);
+			final boolean sourceMap = _sourceMap;
+			final Segment[] segments = new Segment[_specs.length];
+			final List<Segment> located = new ArrayList<>(_specs.length);
+			final byte[] content;
+			byte[] sourceMapContent = null;
+			byte[] compressedContent = null;
+			final IResourceBuildCache cache = getBuildCache();
+			String key = null;
+			try {
+				String contentType = null;
+				for (int i = 0; i < _specs.length; i++) {
+					final Segment reused = previous == null || previous._segments == null ? null : previous._segments[i];
+					if (reused != null && !reused._dirty) {
+						segments[i] = reused;
+					} else {
+						segments[i] = new Segment(_specs[i], findResourceStream(_specs[i].getScope(), _specs[i].getFile()));
+						if (reused != null) {
+							// reused if input didn't change
+							segments[i]._key = reused._key;
+							segments[i]._processed = reused._processed;
+							segments[i]._sourceMapSection = reused._sourceMapSection;
+						}
+						located.add(segments[i]);
+					}
+					final IResourceStream resourceStream = segments[i]._resourceStream;
+					if (contentType != null) {
+						if (resourceStream.getContentType() != null
+								&& !contentType.equalsIgnoreCase(resourceStream.getContentType())) {
+							log.warn("content types of merged resources don't match: '"
+									+ resourceStream.getContentType() + "' and '" + contentType + "'");
+						}
+					} else {
+						contentType = resourceStream.getContentType();
 					}
-				} else {
-					contentType = resourceStream.getContentType();
 				}
+				_contentType = contentType;
+				start = lap(nanos, Stage.LOCATE, start);
 
-				try {
+				for (final Segment segment : located) {
+					inputBytes += read(segment);
+				}
+				start = lap(nanos, Stage.READ, start);
+
+				key = cache == null ? null : getBuildKey(segments);
+				final byte[] cached = key == null ? null : cache.get(key);
+				final byte[] cachedSourceMap = cached == null || !sourceMap ? null : cache.get(getSourceMapKey(key));
+				if (cached != null && (!sourceMap || cachedSourceMap != null)) {
+					content = cached;
+					// empty if no map could be built for this content
+					sourceMapContent = cachedSourceMap == null || cachedSourceMap.length == 0 ? null : cachedSourceMap;
+					if (_compressed) {
+						compressedContent = cache.get(getGzipKey(key));
+					}
+					hit = true;
+					start = lap(nanos, Stage.READ, start);
+				} else {
+					// segments processed by the same pipeline are reused
+					final String pipelineKey = getPipelineKey();
+					final List<Segment> outdated = new ArrayList<>(_specs.length);
+					for (final Segment segment : segments) {
+						final String fileKey = getFileKey(pipelineKey, segment);
+						if (!fileKey.equals(segment._key) || segment._processed == null || sourceMap
+								&& segment._sourceMapSection == null) {
+							if (segment._input == null) {
+								inputBytes += read(segment);
+							}
+							segment._key = fileKey;
+							segment._processed = null;
+							segment._sourceMapSection = null;
+							outdated.add(segment);
+						}
+					}
+					start = lap(nanos, Stage.READ, start);
+
+					final ForkJoinPool pool = getFileBuildPool();
+					if (pool != null) {
+						// preprocess and minify files individually
+						buildFiles(pool, outdated, sourceMap, nanos);
+						start = System.nanoTime();
+					} else {
+						for (final Segment segment : outdated) {
+							// process content from single spec
+							segment._processed = preProcess(segment._spec, segment._input);
+							if (sourceMap) {
+								segment._sourceMapSection = SourceMaps.newSection(segment._spec, segment._input,
+										segment._processed);
+							}
+							segment._input = null;
+						}
+					}
 
-					final Time lastModified = resourceStream.lastModifiedTime();
-					if (max == null || lastModified != null && lastModified.after(max)) {
-						max = lastModified;
+					final int[] lines = new int[segments.length];
+					final int[] columns = new int[segments.length];
+					final byte[] concatenated = concat(segments, lines, columns);
+					final byte[] preprocessed = preProcess(null, concatenated);
+					start = lap(nanos, Stage.PRE_PROCESS, start);
+					if (pool != null) {
+						content = preprocessed;
+					} else {
+						content = toContent(preprocessed);
+						start = lap(nanos, Stage.MINIFY, start);
 					}
-					if (i > 0) {
-						writeFileSeparator(out);
+					if (sourceMap) {
+						sourceMapContent = newSourceMap(segments, lines, columns, concatenated, content);
 					}
-					// process content from single spec
-					final byte[] preprocessed = preProcess(_specs[i], StreamUtils
-							.bytes(resourceStream.getInputStream()));
-					writeContent(out, new ByteArrayInputStream(preprocessed));
-					resourceStreams.add(resourceStream);
-				} catch (final IOException e) {
-					throw new WicketRuntimeException("failed to read from " + resourceStream, e);
-				} catch (final ResourceStreamNotFoundException e) {
-					throw new WicketRuntimeException("did not find resource", e);
-				} finally {
-					try {
-						if (resourceStream != null) {
-							resourceStream.close();
+					if (key != null) {
+						cache.put(key, content);
+						if (sourceMap) {
+							cache.put(getSourceMapKey(key), sourceMapContent != null ? sourceMapContent : new byte[0]);
 						}
+						start = System.nanoTime();
+					}
+				}
+			} finally {
+				for (final Segment segment : located) {
+					try {
+						segment._resourceStream.close();
 					} catch (final IOException e) {
 						log.warn("error while closing reader", e);
 					}
 				}
-
 			}
-			_contentType = contentType;
 
-			_content = toContent(preProcess(null, out.toByteArray()));
+			Time max = null;
+			for (final Segment segment : segments) {
+				segment._input = null;
+				if (watcher == null) {
+					// never rebuilt without watcher
+					segment._key = null;
+					segment._processed = null;
+					segment._sourceMapSection = null;
+				}
+				if (max == null || segment._lastModified != null && segment._lastModified.after(max)) {
+					max = segment._lastModified;
+				}
+			}
+			_segments = watcher == null ? null : segments;
+			_sourceMapContent = sourceMapContent;
+
+			final IResourceContentStore store = getContentStore();
+			_content = store.store(content);
+			if (_compressed && compressedContent == null) {
+				compressedContent = gzip(content);
+				if (key != null) {
+					cache.put(getGzipKey(key), compressedContent);
+				}
+			}
+			_compressedContent = compressedContent == null ? null : store.store(compressedContent);
+			lap(nanos, Stage.COMPRESS, start);
+			_digest = CryptoUtils.hexDigest(content, DigestAlgorithm.SHA_256);
 			_lastModifiedTime = max == null ? Time.now() : max;
-			watchForChanges(resourceStreams);
+			if (watcher != null) {
+				watchForChanges(watcher, located);
+			}
+
+			getMetrics().built(new ResourceBuild(getName(), previous != null, hit, nanos, inputBytes, content.length,
+					compressedContent == null ? -1 : compressedContent.length));
+		}
+
+		/**
+		 * preprocess and minify segments in parallel
+		 */
+		private void buildFiles(final ForkJoinPool pool, final List<Segment> segments, final boolean sourceMap, final long[] nanos) {
+			if (segments.isEmpty()) {
+				return;
+			}
+
+			final List<FileBuildTask> tasks = new ArrayList<>(segments.size());
+			for (final Segment segment : segments) {
+				tasks.add(new FileBuildTask(Application.get(), segment, sourceMap));
+			}
+
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+			for (final FileBuildTask task : tasks) {
+				for (int i = 0; i < nanos.length; i++) {
+					nanos[i] += task._nanos[i];
+				}
+			}
+		}
+
+		/**
+		 * @param lines
+		 *            receives the line each segment starts at
+		 * @param columns
+		 *            receives the column each segment starts at
+		 * @return processed segments in order of specs
+		 */
+		private byte[] concat(final Segment[] segments, final int[] lines, final int[] columns) {
+			final byte[] separator = getFileSeparator();
+			long size = separator.length * (segments.length - 1);
+			for (final Segment segment : segments) {
+				size += segment._processed.length;
+			}
+			final ContentBuffer out = new ContentBuffer(size);
+			final int[] position = new int[2];
+			for (int i = 0; i < segments.length; i++) {
+				if (i > 0) {
+					write(out, separator, position);
+				}
+				lines[i] = position[0];
+				columns[i] = position[1];
+				write(out, segments[i]._processed, position);
+			}
+			return out.materialize();
+		}
+
+		/**
+		 * write bytes, advancing line and column of position
+		 */
+		private void write(final ContentBuffer out, final byte[] bytes, final int[] position) {
+			out.write(bytes, 0, bytes.length);
+			for (final byte b : bytes) {
+				if (b == '\n') {
+					position[0]++;
+					position[1] = 0;
+				} else {
+					position[1]++;
+				}
+			}
+		}
+
+		/**
+		 * @return the index map of all segments or <code>null</code> if processing of the merged content moved them
+		 */
+		private byte[] newSourceMap(final Segment[] segments, final int[] lines, final int[] columns, final byte[] concatenated, final byte[] content) {
+			if (!Arrays.equals(concatenated, content)) {
+				if (!_sourceMapWarned) {
+					_sourceMapWarned = true;
+					log.warn("not creating source map for " + getName()
+							+ " as merged content was processed, e.g. minified, as a whole");
+				}
+				return null;
+			}
+			final String[] sections = new String[segments.length];
+			for (int i = 0; i < segments.length; i++) {
+				sections[i] = segments[i]._sourceMapSection;
+			}
+			return SourceMaps.newIndexMap(lines, columns, sections);
+		}
+
+		private String getSourceMapKey(final String key) {
+			return DigestAlgorithm.SHA_256.newDigest().add(key).add(".map").digestHex();
+		}
+
+		private String getGzipKey(final String key) {
+			return DigestAlgorithm.SHA_256.newDigest().add(key).add(".gz").digestHex();
+		}
+
+		private long lap(final long[] nanos, final Stage stage, final long start) {
+			final long now = System.nanoTime();
+			nanos[stage.ordinal()] += now - start;
+			return now;
+		}
+
+		/**
+		 * @return digest of all inputs and the configuration of the pipeline building the content
+		 */
+		private String getBuildKey(final Segment[] segments) {
+			final IDigest digest = DigestAlgorithm.SHA_256.newDigest();
+			digest.add(BUILD_KEY_VERSION).add("\n").add(getPipelineKey()).add("\n").add(String.valueOf(_locale))
+					.add("\n").add(String.valueOf(_style));
+			for (final Segment segment : segments) {
+				digest.add("\n").add(segment._spec.getScope().getName()).add("/").add(segment._spec.getFile())
+						.add("\n").add(segment._inputDigest);
+			}
+			return digest.digestHex();
+		}
+
+		/**
+		 * @return digest of a single input and the configuration of the pipeline processing it
+		 */
+		private String getFileKey(final String pipelineKey, final Segment segment) {
+			return DigestAlgorithm.SHA_256.newDigest().add(pipelineKey).add("\n")
+					.add(segment._spec.getScope().getName()).add("/").add(segment._spec.getFile()).add("\n")
+					.add(segment._inputDigest).digestHex();
+		}
+
+		/**
+		 * @return number of bytes read
+		 */
+		private int read(final Segment segment) {
+			final IResourceStream resourceStream = segment._resourceStream;
+			segment._lastModified = resourceStream.lastModifiedTime();
+			try {
+				final InputStream in = resourceStream.getInputStream();
+				try {
+					segment._input = ContentBuffer.read(in, resourceStream.length());
+				} finally {
+					in.close();
+				}
+			} catch (final IOException e) {
+				throw new WicketRuntimeException("failed to read from " + resourceStream, e);
+			} catch (final ResourceStreamNotFoundException e) {
+				throw new WicketRuntimeException("did not find resource", e);
+			}
+			segment._inputDigest = CryptoUtils.hexDigest(segment._input, DigestAlgorithm.SHA_256);
+			return segment._input.length;
 		}
 
 		private IResourceStream findResourceStream(final Class<?> scope, final String fileName) {
@@ -197,49 +610,50 @@ public class MergedResourceStream implements IResourceStream {
 			return resourceStream;
 		}
 
-		private void writeContent(final OutputStream out, final InputStream resourceStream) throws IOException {
-			StreamUtils.copy(resourceStream, out);
-			out.flush();
-		}
-
-		private void writeFileSeparator(final ByteArrayOutputStream out) throws IOException {
-			out.write(getFileSeparator());
+		private byte[] gzip(final byte[] content) {
+			try {
+				final ContentBuffer out = new ContentBuffer(content.length / 3 + 32);
+				final GZIPOutputStream zout = new GZIPOutputStream(out);
+				zout.write(content);
+				zout.close();
+				return out.materialize();
+			} catch (final IOException e) {
+				throw new WicketRuntimeException("failed to compress merged resource", e);
+			}
 		}
 
 		private byte[] getFileSeparator() {
 			return isPlainText() ? "\n\n".getBytes() : new byte[0];
 		}
 
-		private void watchForChanges(final List<IResourceStream> resourceStreams) {
+		/**
+		 * a change only marks its own segment dirty, hence a rebuild only reads and processes changed specs
+		 */
+		private void watchForChanges(final IModificationWatcher watcher, final List<Segment> segments) {
 			// Watch file in the future
-			final IModificationWatcher watcher = Application.get().getResourceSettings().getResourceWatcher(true);
-			if (watcher != null) {
-				final IChangeListener listener = new IChangeListener() {
-					@Override
-					public void onChange() {
-						log.info("merged resource has changed");
-						synchronized (MergedResourceStream.this) {
-							for (final IResourceStream resourceStream : resourceStreams) {
-								watcher.remove(resourceStream);
-							}
-							_localizedMergedResourceStream = null;
-						}
-					}
-				};
-				for (final IResourceStream resourceStream : resourceStreams) {
-					watcher.add(resourceStream, listener);
-				}
+			for (final Segment segment : segments) {
+				watcher.add(segment._resourceStream, new SegmentChangeListener(MergedResourceStream.this, watcher,
+						segment));
 			}
 		}
 
+
 		public InputStream getInputStream() {
-			return new ByteArrayInputStream(getContent());
+			return getContent().getInputStream();
 		}
 
-		public byte[] getContent() {
+		public IResourceContent getContent() {
 			return _content;
 		}
 
+		public IResourceContent getCompressedContent() {
+			return _compressedContent;
+		}
+
+		public String getDigest() {
+			return _digest;
+		}
+
 		public Time getLastModifiedTime() {
 			return _lastModifiedTime;
 		}
@@ -247,6 +661,237 @@ public class MergedResourceStream implements IResourceStream {
 		public String getContentType() {
 			return _contentType;
 		}
+
+		public byte[] getSourceMapContent() {
+			return _sourceMapContent;
+		}
+	}
+
+	/**
+	 * serves the gzipped content of the enclosing stream, everything else is delegated
+	 */
+	private final class CompressedResourceStream implements IResourceStreamWriter {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void close() throws IOException {
+			// do nothing
+		}
+
+		@Override
+		public String getContentType() {
+			return MergedResourceStream.this.getContentType();
+		}
+
+		@Override
+		public InputStream getInputStream() throws ResourceStreamNotFoundException {
+			return getLocalizedMergedResourceStream().getCompressedContent().getInputStream();
+		}
+
+		@Override
+		public Locale getLocale() {
+			return MergedResourceStream.this.getLocale();
+		}
+
+		@Override
+		public void write(final OutputStream output) {
+			MergedResourceStream.write(getLocalizedMergedResourceStream().getCompressedContent(), output);
+		}
+
+		@Override
+		public long length() {
+			return getLocalizedMergedResourceStream().getCompressedContent().length();
+		}
+
+		@Override
+		public void setLocale(final Locale locale) {
+			MergedResourceStream.this.setLocale(locale);
+		}
+
+		@Override
+		public Time lastModifiedTime() {
+			return MergedResourceStream.this.lastModifiedTime();
+		}
+	}
+
+	/**
+	 * serves a single build of the enclosing stream, see {@link MergedResourceStream#snapshot()}
+	 */
+	public final class Snapshot implements IResourceStreamWriter {
+		private static final long serialVersionUID = 1L;
+
+		private final LocalizedMergedResourceStream _build;
+		private final boolean _gzip;
+
+		private Snapshot(final LocalizedMergedResourceStream build, final boolean gzip) {
+			_build = build;
+			_gzip = gzip;
+		}
+
+		/**
+		 * @return the stream this snapshot was taken from
+		 */
+		public MergedResourceStream getMergedResourceStream() {
+			return MergedResourceStream.this;
+		}
+
+		/**
+		 * @return whether this snapshot serves the gzipped content
+		 */
+		public boolean isGzip() {
+			return _gzip;
+		}
+
+		/**
+		 * @return a snapshot of the same build serving the gzipped content
+		 * @throws IllegalStateException
+		 *             if the enclosing stream wasn't created as compressed
+		 */
+		public Snapshot getCompressedResourceStream() {
+			if (!_compressed) {
+				throw new IllegalStateException("merged resource stream isn't compressed");
+			}
+			return _gzip ? this : new Snapshot(_build, true);
+		}
+
+		/**
+		 * @see MergedResourceStream#getDigest()
+		 */
+		public String getDigest() {
+			return _build.getDigest();
+		}
+
+		/**
+		 * @see MergedResourceStream#getSourceMap()
+		 */
+		public byte[] getSourceMap() {
+			return _build.getSourceMapContent();
+		}
+
+		private IResourceContent getContent() {
+			return _gzip ? _build.getCompressedContent() : _build.getContent();
+		}
+
+		@Override
+		public void close() throws IOException {
+			// do nothing
+		}
+
+		@Override
+		public String getContentType() {
+			return _build.getContentType();
+		}
+
+		@Override
+		public InputStream getInputStream() throws ResourceStreamNotFoundException {
+			return getContent().getInputStream();
+		}
+
+		@Override
+		public Locale getLocale() {
+			return MergedResourceStream.this.getLocale();
+		}
+
+		@Override
+		public void write(final OutputStream output) {
+			MergedResourceStream.write(getContent(), output);
+		}
+
+		@Override
+		public long length() {
+			return getContent().length();
+		}
+
+		@Override
+		public void setLocale(final Locale locale) {
+			MergedResourceStream.this.setLocale(locale);
+		}
+
+		@Override
+		public Time lastModifiedTime() {
+			return _build.getLastModifiedTime();
+		}
+	}
+
+	/**
+	 * write content to the response, ignoring aborted requests like {@link org.apache.wicket.Response} does
+	 */
+	private static void write(final IResourceContent content, final OutputStream output) {
+		try {
+			content.writeTo(output);
+			output.flush();
+		} catch (final IOException e) {
+			if (isClientAbort(e)) {
+				log.debug("client aborted while writing merged resource", e);
+			} else {
+				throw new WicketRuntimeException("failed to write merged resource", e);
+			}
+		}
+	}
+
+	private static boolean isClientAbort(final Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			final String name = t.getClass().getName();
+			if (t instanceof SocketException || name.contains("ClientAbortException") || name.contains("EofException")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the {@link IResourceMetrics} to report builds to
+	 * @see ResourceMount#setMetrics(Application, IResourceMetrics)
+	 */
+	protected IResourceMetrics getMetrics() {
+		return ResourceMount.getMetrics(Application.get());
+	}
+
+	/**
+	 * @return the {@link IResourceBuildCache} or <code>null</code> if content is always built
+	 * @see ResourceMount#setBuildCache(Application, IResourceBuildCache)
+	 */
+	protected IResourceBuildCache getBuildCache() {
+		return ResourceMount.getBuildCache(Application.get());
+	}
+
+	/**
+	 * @return the {@link ForkJoinPool} processing files individually or <code>null</code> to process the complete
+	 *         merged resource
+	 * @see ResourceMount#setFileBuildPool(Application, ForkJoinPool)
+	 */
+	protected ForkJoinPool getFileBuildPool() {
+		return ResourceMount.getFileBuildPool(Application.get());
+	}
+
+	/**
+	 * identifies the pipeline building the content from its inputs, e.g. preprocessor and compressor classes. Used to
+	 * key {@link IResourceBuildCache} entries, hence subclasses changing the pipeline must include their
+	 * configuration.
+	 *
+	 * @return a key identifying the pipeline
+	 */
+	protected String getPipelineKey() {
+		return getClass().getName() + ";" + getPreProcessorKey(_preProcessor) + ";" + isPlainText() + ";"
+				+ (getFileBuildPool() != null);
+	}
+
+	private static String getPreProcessorKey(final IResourcePreProcessor preProcessor) {
+		if (preProcessor == null) {
+			return null;
+		}
+		// chains describe their stages
+		return preProcessor instanceof ResourcePreProcessorChain ? preProcessor.toString() : preProcessor.getClass()
+				.getName();
+	}
+
+	/**
+	 * @return the {@link IResourceContentStore} keeping merged content
+	 * @see ResourceMount#setContentStore(Application, IResourceContentStore)
+	 */
+	protected IResourceContentStore getContentStore() {
+		final IResourceContentStore store = ResourceMount.getContentStore(Application.get());
+		return store != null ? store : DEFAULT_CONTENT_STORE;
 	}
 
 	protected byte[] toContent(final byte[] content) {
@@ -261,4 +906,92 @@ public class MergedResourceStream implements IResourceStream {
 	public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
 		return _preProcessor != null ? _preProcessor.preProcess(resourceSpec, content) : content;
 	}
+
+	/**
+	 * input of a single spec, retained with its processed content while resources are watched for changes
+	 */
+	/**
+	 * marks a segment dirty. Doesn't reference the build that registered it, as unchanged segments and their
+	 * listeners outlive it.
+	 */
+	private static final class SegmentChangeListener implements IChangeListener {
+		private final MergedResourceStream _stream;
+		private final IModificationWatcher _watcher;
+		private final Segment _segment;
+
+		private SegmentChangeListener(final MergedResourceStream stream, final IModificationWatcher watcher, final Segment segment) {
+			_stream = stream;
+			_watcher = watcher;
+			_segment = segment;
+		}
+
+		@Override
+		public void onChange() {
+			log.info("merged resource has changed");
+			_stream.getMetrics().changed(_stream.getName());
+			_watcher.remove(_segment._resourceStream);
+			_segment._dirty = true;
+			_stream._stale = true;
+		}
+	}
+
+	private static final class Segment {
+		private final ResourceSpec _spec;
+		private final IResourceStream _resourceStream;
+		private volatile boolean _dirty;
+		private Time _lastModified;
+		private byte[] _input;
+		private String _inputDigest;
+		private String _key;
+		private byte[] _processed;
+		private String _sourceMapSection;
+
+		private Segment(final ResourceSpec spec, final IResourceStream resourceStream) {
+			_spec = spec;
+			_resourceStream = resourceStream;
+		}
+	}
+
+	/**
+	 * preprocesses and minifies a single segment, attached to the application of the building thread
+	 */
+	private final class FileBuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Application _application;
+		private final Segment _segment;
+		private final boolean _sourceMap;
+		private final long[] _nanos = new long[Stage.values().length];
+
+		private FileBuildTask(final Application application, final Segment segment, final boolean sourceMap) {
+			_application = application;
+			_segment = segment;
+			_sourceMap = sourceMap;
+		}
+
+		@Override
+		protected void compute() {
+			final boolean attach = !Application.exists();
+			if (attach) {
+				Application.set(_application);
+			}
+			try {
+				final long start = System.nanoTime();
+				final byte[] preprocessed = preProcess(_segment._spec, _segment._input);
+				final long preprocessedTime = System.nanoTime();
+				_segment._processed = toContent(preprocessed);
+				if (_sourceMap) {
+					_segment._sourceMapSection = SourceMaps.newSection(_segment._spec, _segment._input,
+							_segment._processed);
+				}
+				_segment._input = null;
+				_nanos[Stage.PRE_PROCESS.ordinal()] = preprocessedTime - start;
+				_nanos[Stage.MINIFY.ordinal()] = System.nanoTime() - preprocessedTime;
+			} finally {
+				if (attach) {
+					Application.unset();
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.protocol.http.MockWebApplication;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+
+import at.molindo.utils.io.StreamUtils;
+
+/**
+ * builds all merged resources of an application at build time and exports them as build cache entries plus a
+ * manifest, to be served by {@link ClasspathResourceBuildCache} at runtime. The application is initialized with a
+ * mock servlet context, hence the servlet API must be on the classpath. Run as part of the build, e.g. with
+ * exec-maven-plugin:
+ *
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *   &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *   &lt;executions&gt;
+ *     &lt;execution&gt;
+ *       &lt;id&gt;export-merged-resources&lt;/id&gt;
+ *       &lt;phase&gt;process-classes&lt;/phase&gt;
+ *       &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *       &lt;configuration&gt;
+ *         &lt;mainClass&gt;org.wicketstuff.mergedresources.resources.ResourceBuildExporter&lt;/mainClass&gt;
+ *         &lt;classpathScope&gt;compile&lt;/classpathScope&gt;
+ *         &lt;arguments&gt;
+ *           &lt;argument&gt;com.example.MyApplication&lt;/argument&gt;
+ *           &lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;
+ *         &lt;/arguments&gt;
+ *       &lt;/configuration&gt;
+ *     &lt;/execution&gt;
+ *   &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * The application must be configured like in production (e.g. deployment mode, which is the default if
+ * <code>wicket.configuration</code> isn't set) and must not replace the build cache during init.
+ */
+public class ResourceBuildExporter {
+
+	private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ResourceBuildExporter.class);
+
+	private final File _directory;
+
+	/**
+	 * @param directory
+	 *            directory to write entries and manifest to, created if missing
+	 */
+	public ResourceBuildExporter(final File directory) {
+		if (directory == null) {
+			throw new NullPointerException("directory");
+		}
+		_directory = directory;
+	}
+
+	/**
+	 * initialize the application, building and exporting all of its mounted resources
+	 *
+	 * @param application
+	 *            an application that isn't initialized yet
+	 * @return keys of all exported entries
+	 */
+	public Set<String> export(final WebApplication application) {
+		final ExportingBuildCache cache = new ExportingBuildCache(new FileResourceBuildCache(_directory));
+		ResourceMount.setBuildCache(application, cache);
+
+		final MockWebApplication mock = new MockWebApplication(application, null);
+		try {
+			ResourceMount.awaitInit(application);
+			if (ResourceMount.getBuildCache(application) != cache) {
+				throw new WicketRuntimeException("application replaced build cache during init");
+			}
+		} finally {
+			mock.destroy();
+		}
+
+		writeManifest(cache._keys);
+		return cache._keys;
+	}
+
+	private void writeManifest(final Set<String> keys) {
+		final File manifest = new File(_directory, ClasspathResourceBuildCache.MANIFEST);
+
+		// keep entries of other applications exported to the same directory
+		final SortedSet<String> all = new TreeSet<>(keys);
+		try {
+			all.addAll(ClasspathResourceBuildCache.readKeys(new FileInputStream(manifest)));
+		} catch (final FileNotFoundException e) {
+			// new manifest
+		} catch (final IOException e) {
+			throw new WicketRuntimeException("failed to read manifest " + manifest, e);
+		}
+
+		Writer out = null;
+		try {
+			out = new OutputStreamWriter(new FileOutputStream(manifest), "UTF-8");
+			out.write("# exported by " + ResourceBuildExporter.class.getName() + "\n");
+			for (final String key : all) {
+				out.write(key);
+				out.write('\n');
+			}
+		} catch (final IOException e) {
+			throw new WicketRuntimeException("failed to write manifest " + manifest, e);
+		} finally {
+			StreamUtils.close(out);
+		}
+	}
+
+	public File getDirectory() {
+		return _directory;
+	}
+
+	/**
+	 * @param args
+	 *            application class name and output directory (e.g. target/classes), entries are written to
+	 *            {@link ClasspathResourceBuildCache#DEFAULT_PREFIX} within it
+	 * @throws IllegalArgumentException
+	 *             if arguments are missing
+	 */
+	public static void main(final String[] args) {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("usage: " + ResourceBuildExporter.class.getName()
+					+ " <application class> <output directory>");
+		}
+
+		final String property = "wicket." + Application.CONFIGURATION;
+		if (System.getProperty(property) == null) {
+			System.setProperty(property, Application.DEPLOYMENT);
+		}
+
+		final WebApplication application;
+		try {
+			application = Class.forName(args[0]).asSubclass(WebApplication.class).getDeclaredConstructor().newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new WicketRuntimeException("failed to create application " + args[0], e);
+		}
+		final File directory = new File(args[1], ClasspathResourceBuildCache.DEFAULT_PREFIX);
+
+		final Set<String> keys = new ResourceBuildExporter(directory).export(application);
+		log.info("exported " + keys.size() + " entries to " + directory);
+	}
+
+	/**
+	 * always builds content, writing and recording all entries
+	 */
+	private static final class ExportingBuildCache implements IResourceBuildCache {
+		private final IResourceBuildCache _delegate;
+		private final Set<String> _keys = new ConcurrentSkipListSet<>();
+
+		private ExportingBuildCache(final IResourceBuildCache delegate) {
+			_delegate = delegate;
+		}
+
+		@Override
+		public byte[] get(final String key) {
+			return null;
+		}
+
+		@Override
+		public void put(final String key, final byte[] content) {
+			_delegate.put(key, content);
+			_keys.add(key);
+		}
+	}
+}
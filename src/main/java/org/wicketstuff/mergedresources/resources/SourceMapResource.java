@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.html.WebResource;
+import org.apache.wicket.protocol.http.WebResponse;
+import org.apache.wicket.protocol.http.servlet.AbortWithWebErrorCodeException;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.IResourceStreamWriter;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * serves the source map of a {@link MergedResource}, responds with 404 if there is none
+ *
+ * @see MergedResource#setSourceMapUrl(String)
+ */
+public class SourceMapResource extends WebResource {
+
+	private static final long serialVersionUID = 1L;
+
+	private final MergedResource _resource;
+
+	public SourceMapResource(final MergedResource resource) {
+		_resource = resource;
+		setCacheable(true);
+	}
+
+	public MergedResource getMergedResource() {
+		return _resource;
+	}
+
+	@Override
+	public IResourceStream getResourceStream() {
+		final MergedResourceStream stream = _resource.getMergedResourceStream();
+		final byte[] sourceMap = stream.getSourceMap();
+		if (sourceMap == null) {
+			throw new AbortWithWebErrorCodeException(HttpServletResponse.SC_NOT_FOUND);
+		}
+		return new SourceMapResourceStream(sourceMap, stream.lastModifiedTime());
+	}
+
+	@Override
+	protected int getCacheDuration() {
+		return _resource.getCacheDuration();
+	}
+
+	@Override
+	protected void setHeaders(final WebResponse response) {
+		super.setHeaders(response);
+		response.setHeader("Cache-control", "public");
+	}
+
+	private static final class SourceMapResourceStream implements IResourceStreamWriter {
+		private static final long serialVersionUID = 1L;
+
+		private final byte[] _content;
+		private final Time _lastModified;
+
+		private SourceMapResourceStream(final byte[] content, final Time lastModified) {
+			_content = content;
+			_lastModified = lastModified;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// do nothing
+		}
+
+		@Override
+		public String getContentType() {
+			return "application/json";
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(_content);
+		}
+
+		@Override
+		public Locale getLocale() {
+			return null;
+		}
+
+		@Override
+		public long length() {
+			return _content.length;
+		}
+
+		@Override
+		public void setLocale(final Locale locale) {
+			// ignore
+		}
+
+		@Override
+		public Time lastModifiedTime() {
+			return _lastModified;
+		}
+
+		@Override
+		public void write(final OutputStream output) {
+			try {
+				output.write(_content);
+			} catch (final IOException e) {
+				throw new WicketRuntimeException("failed to write source map", e);
+			}
+		}
+	}
+}
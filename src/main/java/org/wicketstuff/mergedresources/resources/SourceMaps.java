@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import java.nio.charset.Charset;
+
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.preprocess.ResourceText;
+
+/**
+ * builds Source Map v3 index maps with one section per merged file. Sections embed their source, as the shared
+ * resources of merged files serve the merged content. Lines are mapped one to one if processing kept the number of
+ * lines, otherwise only the start of a file is mapped.
+ *
+ * @see <a href="https://sourcemaps.info/spec.html">Source Map Revision 3 Proposal</a>
+ */
+final class SourceMaps {
+
+	private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+	private SourceMaps() {
+	}
+
+	/**
+	 * @param spec
+	 *            spec of the merged file
+	 * @param input
+	 *            unprocessed content of the file
+	 * @param processed
+	 *            processed content of the file as merged
+	 * @return JSON of the map for the section of a single file
+	 */
+	static String newSection(final ResourceSpec spec, final byte[] input, final byte[] processed) {
+		final int lines = countLines(input);
+		final boolean identity = lines == countLines(processed);
+
+		final StringBuilder buf = new StringBuilder(input.length + 64 + (identity ? lines * 5 : 0));
+		buf.append("{\"version\":3,\"sources\":[");
+		appendString(buf, spec.getScope().getName() + "/" + spec.getFile());
+		buf.append("],\"sourcesContent\":[");
+		appendString(buf, ResourceText.decode(input, ResourceText.UTF_8).getText());
+		buf.append("],\"names\":[],\"mappings\":\"AAAA");
+		if (identity) {
+			for (int i = 1; i < lines; i++) {
+				// next generated line maps to next source line, column 0
+				buf.append(";AACA");
+			}
+		}
+		return buf.append("\"}").toString();
+	}
+
+	/**
+	 * @param lines
+	 *            generated line of each section's start
+	 * @param columns
+	 *            generated column of each section's start
+	 * @param sections
+	 *            section maps created by {@link #newSection(ResourceSpec, byte[], byte[])}
+	 * @return ASCII encoded JSON of the index map
+	 */
+	static byte[] newIndexMap(final int[] lines, final int[] columns, final String[] sections) {
+		int size = 64;
+		for (final String section : sections) {
+			size += section.length() + 48;
+		}
+		final StringBuilder buf = new StringBuilder(size);
+		buf.append("{\"version\":3,\"sections\":[");
+		for (int i = 0; i < sections.length; i++) {
+			if (i > 0) {
+				buf.append(',');
+			}
+			buf.append("{\"offset\":{\"line\":").append(lines[i]).append(",\"column\":").append(columns[i])
+					.append("},\"map\":").append(sections[i]).append('}');
+		}
+		return buf.append("]}").toString().getBytes(US_ASCII);
+	}
+
+	static int countLines(final byte[] content) {
+		int lines = 1;
+		for (final byte b : content) {
+			if (b == '\n') {
+				lines++;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * append a JSON string, escaping all non ASCII characters
+	 */
+	static void appendString(final StringBuilder buf, final CharSequence string) {
+		buf.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			final char c = string.charAt(i);
+			switch (c) {
+			case '"':
+				buf.append("\\\"");
+				break;
+			case '\\':
+				buf.append("\\\\");
+				break;
+			case '\n':
+				buf.append("\\n");
+				break;
+			case '\r':
+				buf.append("\\r");
+				break;
+			case '\t':
+				buf.append("\\t");
+				break;
+			default:
+				if (c < 0x20 || c > 0x7E) {
+					buf.append("\\u");
+					final String hex = Integer.toHexString(c);
+					for (int j = hex.length(); j < 4; j++) {
+						buf.append('0');
+					}
+					buf.append(hex);
+				} else {
+					buf.append(c);
+				}
+			}
+		}
+		buf.append('"');
+	}
+}
@@ -17,6 +17,9 @@ package org.wicketstuff.mergedresources.urlcoding;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.wicket.ResourceReference;
 import org.apache.wicket.WicketRuntimeException;
@@ -24,8 +27,13 @@ import org.apache.wicket.request.target.coding.IRequestTargetUrlCodingStrategy;
 import org.apache.wicket.request.target.coding.SharedResourceRequestTargetUrlCodingStrategy;
 import org.wicketstuff.mergedresources.ResourceMount;
 
+/**
+ * {@link ResourceMount} serving resources from one or more remote hosts (e.g. a CDN). With several roots, each shared
+ * resource is consistently assigned to one of them using rendezvous hashing of its key. Hence a resource always maps to
+ * the same host while downloads spread across hostnames.
+ */
 public class RemoteHostResourceMount extends ResourceMount {
-	private final URL _root;
+	private final List<URL> _roots;
 	private final boolean _enabled;
 	private final boolean _schemeless;
 
@@ -37,6 +45,14 @@ public class RemoteHostResourceMount extends ResourceMount {
 		}
 	}
 
+	private static List<URL> toURLs(final String[] roots) {
+		final List<URL> urls = new ArrayList<>(roots.length);
+		for (final String root : roots) {
+			urls.add(toURL(root));
+		}
+		return urls;
+	}
+
 	public RemoteHostResourceMount(final String root) throws WicketRuntimeException {
 		this(toURL(root), true);
 	}
@@ -49,6 +65,10 @@ public class RemoteHostResourceMount extends ResourceMount {
 		this(toURL(root), enabled, schemeless);
 	}
 
+	public RemoteHostResourceMount(final String[] roots, final boolean enabled, final boolean schemeless) throws WicketRuntimeException {
+		this(toURLs(roots), enabled, schemeless);
+	}
+
 	public RemoteHostResourceMount(final URL root) {
 		this(root, true);
 	}
@@ -58,17 +78,73 @@ public class RemoteHostResourceMount extends ResourceMount {
 	}
 
 	public RemoteHostResourceMount(final URL root, final boolean enabled, final boolean schemeless) {
+		this(Collections.singletonList(root), enabled, schemeless);
+	}
+
+	/**
+	 * @param roots
+	 *            remote hosts to shard resources across, order doesn't matter
+	 */
+	public RemoteHostResourceMount(final List<URL> roots, final boolean enabled, final boolean schemeless) {
+		if (roots == null || roots.isEmpty()) {
+			throw new IllegalArgumentException("roots must not be empty");
+		}
 		_enabled = enabled;
-		_root = root;
+		_roots = Collections.unmodifiableList(new ArrayList<>(roots));
 		_schemeless = schemeless;
 	}
 
+	public List<URL> getRoots() {
+		return _roots;
+	}
+
+	/**
+	 * @return the root URL used for the shared resource key
+	 */
+	protected URL getRoot(final String sharedResourceKey) {
+		return selectRoot(_roots, sharedResourceKey);
+	}
+
+	/**
+	 * rendezvous (highest random weight) hashing: adding or removing a root only moves resources from or to that root
+	 */
+	static URL selectRoot(final List<URL> roots, final String key) {
+		if (roots.size() == 1) {
+			return roots.get(0);
+		}
+
+		URL selected = null;
+		long max = Long.MIN_VALUE;
+		for (final URL root : roots) {
+			final long weight = weight(root, key);
+			if (selected == null || weight > max) {
+				selected = root;
+				max = weight;
+			}
+		}
+		return selected;
+	}
+
+	private static long weight(final URL root, final String key) {
+		// String.hashCode() is specified, hence stable across JVMs
+		final long rootHash = root == null ? 0 : root.toString().hashCode();
+		final long keyHash = key == null ? 0 : key.hashCode();
+		long h = rootHash << 32 ^ keyHash & 0xffffffffL;
+		// MurmurHash3 finalizer
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
 	@Override
 	protected IRequestTargetUrlCodingStrategy newStrategy(final String mountPath, final ResourceReference ref, final boolean merge) {
 		if (!_enabled) {
 			return super.newStrategy(mountPath, ref, merge);
 		} else {
-			return new RemoteHostUrlCodingStrategy(_root, mountPath, ref) {
+			return new RemoteHostUrlCodingStrategy(getRoot(ref.getSharedResourceKey()), mountPath, ref) {
 				@Override
 				protected SharedResourceRequestTargetUrlCodingStrategy newStrategy(final String mountPath, final String sharedResourceKey) {
 					return (SharedResourceRequestTargetUrlCodingStrategy) RemoteHostResourceMount.super.newStrategy(mountPath, ref, merge);
@@ -16,6 +16,9 @@
 package org.wicketstuff.mergedresources.urlcoding;
 
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -28,23 +31,37 @@ import org.apache.wicket.request.target.coding.AbstractRequestTargetUrlCodingStr
 import org.apache.wicket.request.target.coding.IMountableRequestTargetUrlCodingStrategy;
 import org.apache.wicket.request.target.coding.IRequestTargetUrlCodingStrategy;
 import org.apache.wicket.request.target.coding.SharedResourceRequestTargetUrlCodingStrategy;
+import org.apache.wicket.request.target.resource.ISharedResourceRequestTarget;
 import org.apache.wicket.request.target.resource.SharedResourceRequestTarget;
 
+import at.molindo.utils.data.ObjectUtils;
 import at.molindo.utils.data.StringUtils;
 
 public class RemoteHostUrlCodingStrategy implements IRequestTargetUrlCodingStrategy, IMountableRequestTargetUrlCodingStrategy {
 
+	static final int MAX_CACHED_URLS = 256;
+
 	private final AbstractRequestTargetUrlCodingStrategy _strategy;
 	private final String _key;
 
 	private final String _protocol;
-	private final Integer _port;
+	private final int _port;
 	private final String _host;
 	private final String _path;
 	private boolean _useRequestProtocol = true;
 	private boolean _useRequestPort = true;
 	private boolean _useSchemelessUrl = false;
 
+	/**
+	 * fully-qualified URLs of targets without parameters by protocol and port, looked up without allocation
+	 */
+	private volatile CachedUrl _plainUrls;
+
+	/**
+	 * fully-qualified URLs of targets with parameters by protocol, port and shared resource target
+	 */
+	private final ConcurrentMap<UrlKey, String> _urls = new ConcurrentHashMap<>();
+
 	public RemoteHostUrlCodingStrategy(final URL root, final String mountPath, final ResourceReference ref) {
 		if (ref == null) {
 			throw new NullPointerException("sharedResourceKey");
@@ -62,7 +79,7 @@ public class RemoteHostUrlCodingStrategy implements IRequestTargetUrlCodingStrat
 			_host = root.getHost();
 			_path = StringUtils.trailing(root.getPath(), "/");
 		} else {
-			_port = null;
+			_port = -1;
 			_host = _protocol = _path = null;
 		}
 	}
@@ -100,31 +117,72 @@ public class RemoteHostUrlCodingStrategy implements IRequestTargetUrlCodingStrat
 
 	@Override
 	public CharSequence encode(final IRequestTarget requestTarget) {
-		final CharSequence encoded = _strategy.encode(requestTarget);
 		if (_host == null) {
-			return encoded;
+			return _strategy.encode(requestTarget);
 		}
 
 		final HttpServletRequest request = ((WebRequest) RequestCycle.get().getRequest()).getHttpServletRequest();
 
 		final String protocol = !isUseRequestProtocol() ? _protocol : request.getScheme();
 
-		Integer port = !isUseRequestPort() ? _port : request.getServerPort();
-		if (port != null) {
-			if (port == 80 && "http".equals(protocol)) {
-				port = null;
-			} else if (port == 443 && "https".equals(protocol)) {
-				port = null;
+		// -1 for the default port of the protocol
+		int port = !isUseRequestPort() ? _port : request.getServerPort();
+		if (port == 80 && "http".equals(protocol) || port == 443 && "https".equals(protocol)) {
+			port = -1;
+		}
+
+		if (isPlain(requestTarget)) {
+			final CachedUrl head = _plainUrls;
+			String url = head == null ? null : head.get(protocol, port);
+			if (url == null) {
+				url = toUrl(protocol, port, _strategy.encode(requestTarget));
+				// lost updates only cost another encoding
+				_plainUrls = new CachedUrl(protocol, port, url,
+						head == null || head._size >= MAX_CACHED_URLS ? null : head);
 			}
+			return url;
 		}
 
+		final UrlKey key = UrlKey.of(protocol, port, requestTarget);
+		if (key != null) {
+			final String url = _urls.get(key);
+			if (url != null) {
+				return url;
+			}
+		}
+
+		final String url = toUrl(protocol, port, _strategy.encode(requestTarget));
+
+		if (key != null) {
+			if (_urls.size() >= MAX_CACHED_URLS) {
+				// targets with changing parameters - start over
+				_urls.clear();
+			}
+			_urls.put(key, url);
+		}
+		return url;
+	}
+
+	/**
+	 * @return whether requestTarget is a shared resource target of this strategy without parameters
+	 */
+	private boolean isPlain(final IRequestTarget requestTarget) {
+		if (!(requestTarget instanceof ISharedResourceRequestTarget)) {
+			return false;
+		}
+		final RequestParameters params = ((ISharedResourceRequestTarget) requestTarget).getRequestParameters();
+		final Map<String, ?> parameters = params.getParameters();
+		return (parameters == null || parameters.isEmpty()) && _key.equals(params.getResourceKey());
+	}
+
+	private String toUrl(final String protocol, final int port, final CharSequence encoded) {
 		final StringBuilder buf = new StringBuilder();
 		if (!_useSchemelessUrl) {
 			buf.append(protocol).append(":");
 		}
 		buf.append("//");
 		buf.append(_host);
-		if (port != null) {
+		if (port >= 0) {
 			buf.append(":").append(port);
 		}
 		buf.append(_path);
@@ -154,6 +212,8 @@ public class RemoteHostUrlCodingStrategy implements IRequestTargetUrlCodingStrat
 
 	public RemoteHostUrlCodingStrategy setUseRequestProtocol(final boolean useRequestProtocol) {
 		_useRequestProtocol = useRequestProtocol;
+		_plainUrls = null;
+		_urls.clear();
 		return this;
 	}
 
@@ -163,12 +223,107 @@ public class RemoteHostUrlCodingStrategy implements IRequestTargetUrlCodingStrat
 
 	public RemoteHostUrlCodingStrategy setUseRequestPort(final boolean useRequestPort) {
 		_useRequestPort = useRequestPort;
+		_plainUrls = null;
+		_urls.clear();
 		return this;
 	}
 
 	public RemoteHostUrlCodingStrategy setUseSchemelessUrl(final boolean useSchemelessUrl) {
 		_useSchemelessUrl = useSchemelessUrl;
+		_plainUrls = null;
+		_urls.clear();
 		return this;
 	}
 
+	int getCachedUrlCount() {
+		final CachedUrl head = _plainUrls;
+		return (head == null ? 0 : head._size) + _urls.size();
+	}
+
+	/**
+	 * immutable list of cached URLs of targets without parameters
+	 */
+	private static final class CachedUrl {
+		private final String _protocol;
+		private final int _port;
+		private final String _url;
+		private final CachedUrl _next;
+		private final int _size;
+
+		private CachedUrl(final String protocol, final int port, final String url, final CachedUrl next) {
+			_protocol = protocol;
+			_port = port;
+			_url = url;
+			_next = next;
+			_size = next == null ? 1 : next._size + 1;
+		}
+
+		private String get(final String protocol, final int port) {
+			for (CachedUrl cached = this; cached != null; cached = cached._next) {
+				if (cached._port == port && ObjectUtils.equals(cached._protocol, protocol)) {
+					return cached._url;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * key of a cached URL, only available for shared resource targets with plain string parameters
+	 */
+	private static final class UrlKey {
+		private final String _protocol;
+		private final int _port;
+		private final String _resourceKey;
+		private final Map<String, ?> _parameters;
+		private final int _hash;
+
+		private static UrlKey of(final String protocol, final int port, final IRequestTarget requestTarget) {
+			if (!(requestTarget instanceof ISharedResourceRequestTarget)) {
+				return null;
+			}
+			final RequestParameters params = ((ISharedResourceRequestTarget) requestTarget).getRequestParameters();
+			final Map<String, ?> parameters = params.getParameters();
+			if (parameters != null) {
+				for (final Object value : parameters.values()) {
+					if (!(value instanceof String)) {
+						// arrays don't implement equals
+						return null;
+					}
+				}
+			}
+			return new UrlKey(protocol, port, params.getResourceKey(), parameters == null || parameters.isEmpty() ? null : parameters);
+		}
+
+		private UrlKey(final String protocol, final int port, final String resourceKey, final Map<String, ?> parameters) {
+			_protocol = protocol;
+			_port = port;
+			_resourceKey = resourceKey;
+			_parameters = parameters;
+
+			int hash = protocol == null ? 0 : protocol.hashCode();
+			hash = 31 * hash + port;
+			hash = 31 * hash + (resourceKey == null ? 0 : resourceKey.hashCode());
+			_hash = 31 * hash + (parameters == null ? 0 : parameters.hashCode());
+		}
+
+		@Override
+		public int hashCode() {
+			return _hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof UrlKey)) {
+				return false;
+			}
+			final UrlKey other = (UrlKey) obj;
+			return _hash == other._hash && ObjectUtils.equals(_protocol, other._protocol)
+					&& _port == other._port && ObjectUtils.equals(_resourceKey, other._resourceKey)
+					&& ObjectUtils.equals(_parameters, other._parameters);
+		}
+	}
 }
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.util;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.Application;
+import org.wicketstuff.mergedresources.ResourceMount;
+
+/**
+ * hook to send preload Link headers as 103 Early Hints where the container supports it, e.g. on Tomcat 9.0.74+:
+ *
+ * <pre>
+ * public void send(HttpServletResponse response, List&lt;String&gt; links) {
+ * 	response.sendError(103);
+ * }
+ * </pre>
+ *
+ * Servlet 3.1 doesn't define early hints, hence there is no default implementation.
+ *
+ * @see ResourceMount#setEarlyHints(Application, IEarlyHints)
+ * @see ResourceMount#setPreload(boolean)
+ */
+public interface IEarlyHints {
+
+	/**
+	 * called at most once per page request, before rendering, after Link headers were added to the response
+	 *
+	 * @param response
+	 *            the response containing all Link headers
+	 * @param links
+	 *            values of the added Link headers
+	 * @see PreloadLinks#send(org.apache.wicket.protocol.http.WebRequestCycle)
+	 */
+	public void send(HttpServletResponse response, List<String> links);
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.util;
+
+import java.util.Arrays;
+
+import org.apache.wicket.IRequestTarget;
+import org.apache.wicket.protocol.http.request.WebRequestCodingStrategy;
+import org.apache.wicket.request.target.coding.IRequestTargetUrlCodingStrategy;
+import org.apache.wicket.request.target.resource.ISharedResourceRequestTarget;
+
+/**
+ * finds strategies for shared resources mounted by {@link org.wicketstuff.mergedresources.ResourceMount} using a
+ * {@link SharedResourceStrategyIndex} instead of asking all mounted strategies. Everything else, including keys mounted
+ * by multiple strategies, is matched as usual.
+ * Use by overriding {@link org.apache.wicket.protocol.http.WebApplication#newRequestCycleProcessor()}:
+ *
+ * <pre>
+ * protected IRequestCycleProcessor newRequestCycleProcessor() {
+ * 	return new WebRequestCycleProcessor() {
+ * 		protected IRequestCodingStrategy newRequestCodingStrategy() {
+ * 			return new IndexedWebRequestCodingStrategy(ResourceMount.getStrategyIndex(MyApplication.this));
+ * 		}
+ * 	};
+ * }
+ * </pre>
+ */
+public class IndexedWebRequestCodingStrategy extends WebRequestCodingStrategy {
+
+	private final SharedResourceStrategyIndex _index;
+
+	public IndexedWebRequestCodingStrategy(final SharedResourceStrategyIndex index) {
+		this(index, new Settings());
+	}
+
+	public IndexedWebRequestCodingStrategy(final SharedResourceStrategyIndex index, final Settings settings) {
+		super(settings);
+		if (index == null) {
+			throw new NullPointerException("index");
+		}
+		_index = index;
+	}
+
+	public SharedResourceStrategyIndex getIndex() {
+		return _index;
+	}
+
+	@Override
+	protected IRequestTargetUrlCodingStrategy getMountEncoder(final IRequestTarget requestTarget) {
+		if (requestTarget instanceof ISharedResourceRequestTarget) {
+			final IRequestTargetUrlCodingStrategy strategy = _index.get(((ISharedResourceRequestTarget) requestTarget)
+					.getResourceKey());
+			if (strategy != null) {
+				return strategy;
+			}
+		}
+		return super.getMountEncoder(requestTarget);
+	}
+
+	@Override
+	public void unmount(final String path) {
+		super.unmount(path);
+		_index.retain(Arrays.asList(listMounts()));
+	}
+}
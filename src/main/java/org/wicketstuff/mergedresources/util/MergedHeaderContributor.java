@@ -1,68 +1,107 @@
-/**
- * Copyright 2016 Molindo GmbH
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- * http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.wicketstuff.mergedresources.util;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import org.apache.wicket.ResourceReference;
-import org.apache.wicket.behavior.AbstractHeaderContributor;
-import org.apache.wicket.markup.html.IHeaderContributor;
-import org.apache.wicket.markup.html.IHeaderResponse;
-import org.apache.wicket.util.string.Strings;
-
-public class MergedHeaderContributor extends AbstractHeaderContributor {
-	private static final long serialVersionUID = 1L;
-	public IHeaderContributor _contributor;
-	private final ArrayList<ResourceReference> _refs;
-	private final String _cssMediaType;
-
-	public MergedHeaderContributor(final List<ResourceReference> refs) {
-		this(refs, null);
-	}
-
-	public MergedHeaderContributor(final List<ResourceReference> refs, final String cssMediaType) {
-		_refs = new ArrayList<>(refs);
-		_cssMediaType = cssMediaType;
-		_contributor = new IHeaderContributor() {
-
-			private static final long serialVersionUID = 1L;
-
-			@Override
-			public void renderHead(final IHeaderResponse response) {
-				for (final ResourceReference ref : _refs) {
-					final String name = ref.getName();
-					if (name != null) {
-						if (name.endsWith(".js")) {
-							response.renderJavascriptReference(ref);
-						} else if (name.endsWith(".css")) {
-							if (Strings.isEmpty(_cssMediaType)) {
-								response.renderCSSReference(ref);
-							} else {
-								response.renderCSSReference(ref, _cssMediaType);
-							}
-						}
-					}
-				}
-			}
-		};
-	}
-
-	@Override
-	public IHeaderContributor[] getHeaderContributors() {
-		return new IHeaderContributor[] { _contributor };
-	}
-}
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.IClusterable;
+import org.apache.wicket.RequestCycle;
+import org.apache.wicket.ResourceReference;
+import org.apache.wicket.behavior.AbstractHeaderContributor;
+import org.apache.wicket.markup.html.IHeaderContributor;
+import org.apache.wicket.markup.html.IHeaderResponse;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * renders references to all JS and CSS resources of a list. Resource types and CSS media are resolved once, leaving
+ * URLs as the only per request work. URLs are not cached as they depend on the request (relative path, session
+ * encoding, protocol of remote hosts).
+ */
+public class MergedHeaderContributor extends AbstractHeaderContributor {
+	private static final long serialVersionUID = 1L;
+	public IHeaderContributor _contributor;
+	private final Reference[] _plan;
+
+	public MergedHeaderContributor(final List<ResourceReference> refs) {
+		this(refs, null);
+	}
+
+	public MergedHeaderContributor(final List<ResourceReference> refs, final String cssMediaType) {
+		_plan = newPlan(refs, Strings.isEmpty(cssMediaType) ? null : cssMediaType);
+		_contributor = new IHeaderContributor() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void renderHead(final IHeaderResponse response) {
+				if (_plan.length == 0) {
+					return;
+				}
+				final RequestCycle requestCycle = RequestCycle.get();
+				for (final Reference ref : _plan) {
+					ref.render(requestCycle, response);
+				}
+			}
+		};
+	}
+
+	private static Reference[] newPlan(final List<ResourceReference> refs, final String cssMediaType) {
+		final List<Reference> plan = new ArrayList<>(refs.size());
+		for (final ResourceReference ref : refs) {
+			final String name = ref.getName();
+			if (name != null) {
+				if (name.endsWith(".js")) {
+					plan.add(new Reference(ref, true, null));
+				} else if (name.endsWith(".css")) {
+					plan.add(new Reference(ref, false, cssMediaType));
+				}
+			}
+		}
+		return plan.toArray(new Reference[plan.size()]);
+	}
+
+	@Override
+	public IHeaderContributor[] getHeaderContributors() {
+		return new IHeaderContributor[] { _contributor };
+	}
+
+	/**
+	 * a JS or CSS reference to render
+	 */
+	private static final class Reference implements IClusterable {
+		private static final long serialVersionUID = 1L;
+
+		private final ResourceReference _ref;
+		private final boolean _js;
+		private final String _cssMediaType;
+
+		private Reference(final ResourceReference ref, final boolean js, final String cssMediaType) {
+			_ref = ref;
+			_js = js;
+			_cssMediaType = cssMediaType;
+		}
+
+		private void render(final RequestCycle requestCycle, final IHeaderResponse response) {
+			final String url = requestCycle.urlFor(_ref).toString();
+			if (_js) {
+				response.renderJavascriptReference(url);
+			} else {
+				response.renderCSSReference(url, _cssMediaType);
+			}
+		}
+	}
+}
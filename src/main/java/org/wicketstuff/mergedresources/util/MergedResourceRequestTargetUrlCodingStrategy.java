@@ -19,17 +19,32 @@
 package org.wicketstuff.mergedresources.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.wicket.IRequestTarget;
 import org.apache.wicket.request.target.coding.SharedResourceRequestTargetUrlCodingStrategy;
 import org.apache.wicket.request.target.resource.ISharedResourceRequestTarget;
 
 public final class MergedResourceRequestTargetUrlCodingStrategy extends SharedResourceRequestTargetUrlCodingStrategy {
-	private final ArrayList<String> _mergedKeys;
+	private final Set<String> _mergedKeys;
 
 	public MergedResourceRequestTargetUrlCodingStrategy(final String mountPath, final String resourceKey, final ArrayList<String> mergedKeys) {
+		this(mountPath, resourceKey, (Collection<String>) mergedKeys);
+	}
+
+	public MergedResourceRequestTargetUrlCodingStrategy(final String mountPath, final String resourceKey, final Collection<String> mergedKeys) {
 		super(mountPath, resourceKey);
-		_mergedKeys = mergedKeys;
+		_mergedKeys = Collections.unmodifiableSet(new HashSet<>(mergedKeys));
+	}
+
+	/**
+	 * @return shared resource keys of all merged resources
+	 */
+	public Set<String> getMergedKeys() {
+		return _mergedKeys;
 	}
 
 	@Override
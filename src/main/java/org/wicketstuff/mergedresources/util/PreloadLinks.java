@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.ResourceReference;
+import org.apache.wicket.protocol.http.WebRequestCycle;
+import org.apache.wicket.protocol.http.request.WebRequestCodingStrategy;
+import org.apache.wicket.request.IRequestCodingStrategy;
+import org.apache.wicket.request.target.coding.IRequestTargetUrlCodingStrategy;
+import org.apache.wicket.request.target.coding.SharedResourceRequestTargetUrlCodingStrategy;
+import org.apache.wicket.util.string.Strings;
+import org.wicketstuff.mergedresources.ResourceMount;
+
+/**
+ * preload Link headers of all resources mounted by {@link ResourceMount}s with
+ * {@link ResourceMount#setPreload(boolean)}, maintained per application. Headers are added when a page request begins,
+ * i.e. before rendering, and passed to {@link IEarlyHints} once per request. Call {@link #send(WebRequestCycle)} from
+ * {@link WebRequestCycle#onBeginRequest()}:
+ *
+ * <pre>
+ * public RequestCycle newRequestCycle(Request request, Response response) {
+ * 	return new WebRequestCycle(this, (WebRequest) request, response) {
+ * 		protected void onBeginRequest() {
+ * 			ResourceMount.getPreloadLinks(getApplication()).send(this);
+ * 		}
+ * 	};
+ * }
+ * </pre>
+ *
+ * As the page isn't known yet, all preloaded resources are linked. Ajax requests and requests for resources aren't
+ * linked.
+ */
+public final class PreloadLinks {
+
+	private static final MetaDataKey<Boolean> SENT_KEY = new MetaDataKey<Boolean>() {
+		private static final long serialVersionUID = 1L;
+	};
+
+	private final List<Link> _links = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param refs
+	 *            references to preload, all but JS and CSS resources are ignored
+	 * @param cssMediaType
+	 *            CSS media type, e.g. "print" or <code>null</code> for no media type
+	 */
+	public void add(final List<ResourceReference> refs, final String cssMediaType) {
+		final String media = Strings.isEmpty(cssMediaType) ? null : cssMediaType;
+		for (final ResourceReference ref : refs) {
+			final String name = ref.getName();
+			if (name != null) {
+				if (name.endsWith(".js")) {
+					_links.add(new Link(ref, "script", null));
+				} else if (name.endsWith(".css")) {
+					_links.add(new Link(ref, "style", media));
+				}
+			}
+		}
+	}
+
+	/**
+	 * add Link headers to the response of a page request and pass them to {@link IEarlyHints} if configured. Does
+	 * nothing if called again for the same request.
+	 *
+	 * @param cycle
+	 *            a request cycle that didn't render anything yet
+	 * @return the added Link headers, empty if nothing was added
+	 * @see ResourceMount#setEarlyHints(Application, IEarlyHints)
+	 */
+	public List<String> send(final WebRequestCycle cycle) {
+		if (_links.isEmpty() || cycle.getMetaData(SENT_KEY) != null || !isPageRequest(cycle)) {
+			return new ArrayList<>(0);
+		}
+		cycle.setMetaData(SENT_KEY, Boolean.TRUE);
+
+		final HttpServletResponse response = cycle.getWebResponse().getHttpServletResponse();
+		if (response == null || response.isCommitted()) {
+			return new ArrayList<>(0);
+		}
+
+		final Set<String> headers = new LinkedHashSet<>();
+		for (final Link link : _links) {
+			headers.add(link.toHeader(cycle.urlFor(link._ref).toString()));
+		}
+		final List<String> links = new ArrayList<>(headers);
+		for (final String header : links) {
+			response.addHeader("Link", header);
+		}
+
+		final IEarlyHints earlyHints = ResourceMount.getEarlyHints(cycle.getApplication());
+		if (earlyHints != null) {
+			earlyHints.send(response, links);
+		}
+		return links;
+	}
+
+	/**
+	 * @return <code>false</code> for Ajax requests and requests for shared resources, including resources redirecting
+	 *         to their versioned path
+	 */
+	private static boolean isPageRequest(final WebRequestCycle cycle) {
+		if (cycle.getWebRequest().isAjax()) {
+			return false;
+		}
+		final String path = cycle.getRequest().getPath();
+		if (path == null) {
+			return true;
+		}
+		if (path.startsWith(WebRequestCodingStrategy.RESOURCES_PATH_PREFIX)) {
+			return false;
+		}
+		final IRequestCodingStrategy coding = cycle.getProcessor().getRequestCodingStrategy();
+		final IRequestTargetUrlCodingStrategy strategy = coding.urlCodingStrategyForPath(path);
+		return !(strategy instanceof SharedResourceRequestTargetUrlCodingStrategy
+				|| strategy instanceof RedirectStrategy);
+	}
+
+	/**
+	 * a JS or CSS reference to preload
+	 */
+	private static final class Link {
+		private final ResourceReference _ref;
+		private final String _as;
+		private final String _media;
+
+		private Link(final ResourceReference ref, final String as, final String media) {
+			_ref = ref;
+			_as = as;
+			_media = media;
+		}
+
+		private String toHeader(final String url) {
+			final StringBuilder buf = new StringBuilder(url.length() + 32);
+			buf.append('<').append(url).append(">; rel=preload; as=").append(_as);
+			if (_media != null) {
+				buf.append("; media=\"").append(_media.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+			}
+			return buf.toString();
+		}
+	}
+}
@@ -15,6 +15,7 @@
  */
 package org.wicketstuff.mergedresources.util;
 
+import org.apache.wicket.Application;
 import org.apache.wicket.IRequestTarget;
 import org.apache.wicket.RequestCycle;
 import org.apache.wicket.markup.html.WebPage;
@@ -22,6 +23,7 @@ import org.apache.wicket.protocol.http.WebRequest;
 import org.apache.wicket.request.RequestParameters;
 import org.apache.wicket.request.target.basic.RedirectRequestTarget;
 import org.apache.wicket.request.target.coding.BookmarkablePageRequestTargetUrlCodingStrategy;
+import org.wicketstuff.mergedresources.ResourceMount;
 
 public class RedirectStrategy extends BookmarkablePageRequestTargetUrlCodingStrategy {
 	private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RedirectStrategy.class);
@@ -46,6 +48,8 @@ public class RedirectStrategy extends BookmarkablePageRequestTargetUrlCodingStra
 			log.debug("redirecting request coming from " + ref + " to " + requested + " to " + _redirectPath);
 		}
 
+		ResourceMount.getMetrics(Application.get()).redirected(getMountPath(), _redirectPath);
+
 		return new RedirectRequestTarget(_redirectPath);
 	}
 
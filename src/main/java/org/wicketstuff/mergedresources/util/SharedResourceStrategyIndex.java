@@ -0,0 +1,112 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.request.target.coding.IRequestTargetUrlCodingStrategy;
+
+/**
+ * reverse index from shared resource keys to the strategies mounting them, maintained by
+ * {@link org.wicketstuff.mergedresources.ResourceMount} and used by {@link IndexedWebRequestCodingStrategy} to encode
+ * resource URLs with a single lookup. Keys mounted by multiple strategies aren't resolved by the index, leaving the
+ * choice to Wicket's own precedence of mounts.
+ */
+public final class SharedResourceStrategyIndex {
+
+	/**
+	 * immutable lists of strategies per key, replaced on change
+	 */
+	private final ConcurrentMap<String, List<IRequestTargetUrlCodingStrategy>> _strategies = new ConcurrentHashMap<>();
+
+	/**
+	 * @param strategy
+	 *            a mounted strategy
+	 * @param keys
+	 *            all shared resource keys the strategy matches
+	 */
+	public void add(final IRequestTargetUrlCodingStrategy strategy, final Collection<String> keys) {
+		final List<IRequestTargetUrlCodingStrategy> single = Collections.singletonList(strategy);
+		for (final String key : keys) {
+			while (true) {
+				final List<IRequestTargetUrlCodingStrategy> existing = _strategies.putIfAbsent(key, single);
+				if (existing == null || containsIdentical(existing, strategy)) {
+					break;
+				}
+				final List<IRequestTargetUrlCodingStrategy> added = new ArrayList<>(existing.size() + 1);
+				added.addAll(existing);
+				added.add(strategy);
+				if (_strategies.replace(key, existing, Collections.unmodifiableList(added))) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the only strategy mounting key or <code>null</code> if not indexed or mounted by multiple strategies
+	 */
+	public IRequestTargetUrlCodingStrategy get(final String key) {
+		final List<IRequestTargetUrlCodingStrategy> strategies = _strategies.get(key);
+		return strategies == null || strategies.size() != 1 ? null : strategies.get(0);
+	}
+
+	/**
+	 * remove all strategies not contained in mounted
+	 */
+	public void retain(final Collection<IRequestTargetUrlCodingStrategy> mounted) {
+		final Collection<IRequestTargetUrlCodingStrategy> identities = Collections
+				.newSetFromMap(new IdentityHashMap<IRequestTargetUrlCodingStrategy, Boolean>());
+		identities.addAll(mounted);
+		final Iterator<Map.Entry<String, List<IRequestTargetUrlCodingStrategy>>> iter = _strategies.entrySet()
+				.iterator();
+		while (iter.hasNext()) {
+			final Map.Entry<String, List<IRequestTargetUrlCodingStrategy>> e = iter.next();
+			final List<IRequestTargetUrlCodingStrategy> retained = new ArrayList<>(e.getValue().size());
+			for (final IRequestTargetUrlCodingStrategy strategy : e.getValue()) {
+				if (identities.contains(strategy)) {
+					retained.add(strategy);
+				}
+			}
+			if (retained.isEmpty()) {
+				iter.remove();
+			} else if (retained.size() < e.getValue().size()) {
+				_strategies.replace(e.getKey(), e.getValue(), Collections.unmodifiableList(retained));
+			}
+		}
+	}
+
+	public int size() {
+		return _strategies.size();
+	}
+
+	private static boolean containsIdentical(final List<IRequestTargetUrlCodingStrategy> strategies, final IRequestTargetUrlCodingStrategy strategy) {
+		for (final IRequestTargetUrlCodingStrategy s : strategies) {
+			if (s == strategy) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.versioning;
+
+/**
+ * a version derived from a digest of resource content, see {@link ContentDigestVersionProvider}
+ */
+public final class ContentDigestResourceVersion extends AbstractResourceVersion {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String _digest;
+
+	public ContentDigestResourceVersion(final String digest) {
+		if (digest == null) {
+			throw new NullPointerException("digest");
+		}
+		_digest = digest;
+	}
+
+	@Override
+	public boolean isValid() {
+		return _digest.length() > 0;
+	}
+
+	@Override
+	public String getVersion() {
+		return _digest;
+	}
+
+	/**
+	 * digests have no natural order, they are compared lexically to keep results deterministic
+	 */
+	@Override
+	protected int compareValid(final AbstractResourceVersion o) throws IncompatibleVersionsException {
+		if (o instanceof ContentDigestResourceVersion) {
+			return getVersion().compareTo(o.getVersion());
+		} else {
+			throw new IncompatibleVersionsException(this, o);
+		}
+	}
+}
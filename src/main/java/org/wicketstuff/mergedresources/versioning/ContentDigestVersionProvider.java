@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.versioning;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.wicketstuff.mergedresources.ResourceMount;
+
+import at.molindo.utils.crypto.CryptoUtils;
+import at.molindo.utils.crypto.DigestAlgorithm;
+import at.molindo.utils.io.StreamUtils;
+
+/**
+ * Versions resources by a truncated SHA-256 digest of their content. {@link ResourceMount} uses the digest of the final
+ * (merged, preprocessed and minified) content of each mounted resource, hence a versioned path only changes if the
+ * served content changes. {@link #getVersion(Class, String)} digests a single file as found on the classpath.
+ */
+public class ContentDigestVersionProvider extends AbstractClasspathResourceVersionProvider {
+
+	/**
+	 * default number of hex characters used from the digest (64 bits)
+	 */
+	public static final int DEFAULT_LENGTH = 16;
+
+	private final int _length;
+
+	public ContentDigestVersionProvider() {
+		this(DEFAULT_LENGTH);
+	}
+
+	/**
+	 * @param length
+	 *            number of hex characters to use from the digest, between 1 and 64
+	 */
+	public ContentDigestVersionProvider(final int length) {
+		if (length < 1 || length > 64) {
+			throw new IllegalArgumentException("length must be between 1 and 64, was " + length);
+		}
+		_length = length;
+	}
+
+	@Override
+	protected AbstractResourceVersion getVersion(final URL url) throws VersionException {
+		InputStream in = null;
+		try {
+			in = url.openStream();
+			return getVersion(CryptoUtils.hexDigest(StreamUtils.bytes(in), DigestAlgorithm.SHA_256));
+		} catch (final IOException e) {
+			throw new VersionException("failed to read content from url: " + url, e);
+		} finally {
+			StreamUtils.close(in);
+		}
+	}
+
+	/**
+	 * @param digest
+	 *            hex encoded digest
+	 * @return version using the configured number of characters from digest
+	 */
+	public AbstractResourceVersion getVersion(final String digest) {
+		return new ContentDigestResourceVersion(digest.length() > _length ? digest.substring(0, _length) : digest);
+	}
+
+	public int getLength() {
+		return _length;
+	}
+}
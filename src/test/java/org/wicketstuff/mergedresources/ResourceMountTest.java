@@ -20,6 +20,8 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.ResourceReference;
@@ -27,6 +29,10 @@ import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.protocol.http.WebRequestCycle;
+import org.apache.wicket.protocol.http.WebRequestCycleProcessor;
+import org.apache.wicket.request.IRequestCodingStrategy;
+import org.apache.wicket.request.IRequestCycleProcessor;
+import org.apache.wicket.request.target.coding.IMountableRequestTargetUrlCodingStrategy;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.string.StringList;
 import org.apache.wicket.util.tester.WicketTester;
@@ -35,6 +41,8 @@ import org.wicketstuff.mergedresources.ResourceMount.SuffixMismatchStrategy;
 import org.wicketstuff.mergedresources.components.ComponentB;
 import org.wicketstuff.mergedresources.components.MyForm;
 import org.wicketstuff.mergedresources.components.PanelOne;
+import org.wicketstuff.mergedresources.util.IndexedWebRequestCodingStrategy;
+import org.wicketstuff.mergedresources.util.SharedResourceStrategyIndex;
 
 public class ResourceMountTest {
 	static final ResourceReference CSS_COMPONENT_B = new ResourceReference(ComponentB.class, "ComponentB.css");
@@ -69,6 +77,78 @@ public class ResourceMountTest {
 		tester.assertResultPage(ResourceMountTest.class, "ResourceMountTestPage-deployment-expected.html");
 	}
 
+	/**
+	 * Verify that the test page renders the same using the index of mounted shared resources.
+	 */
+	@Test
+	public void testRender_indexed() throws Exception {
+		final WicketTester tester = new WicketTester(new MergedApp() {
+			@Override
+			public String getConfigurationType() {
+				return DEPLOYMENT;
+			}
+
+			@Override
+			protected IRequestCycleProcessor newRequestCycleProcessor() {
+				final Application application = this;
+				return new WebRequestCycleProcessor() {
+					@Override
+					protected IRequestCodingStrategy newRequestCodingStrategy() {
+						return new IndexedWebRequestCodingStrategy(ResourceMount.getStrategyIndex(application));
+					}
+				};
+			}
+		});
+		tester.startPage(HomePage.class);
+		tester.assertRenderedPage(HomePage.class);
+		tester.assertResultPage(ResourceMountTest.class, "ResourceMountTestPage-deployment-expected.html");
+
+		final SharedResourceStrategyIndex index = ResourceMount.getStrategyIndex(tester.getApplication());
+		final String key = JS_PANEL_ONE.getSharedResourceKey();
+		assertEquals("static/scripts.js", ((IMountableRequestTargetUrlCodingStrategy) index.get(key)).getMountPath());
+
+		tester.getApplication().unmount("/static/scripts.js");
+		assertNull(index.get(key));
+		assertNotNull(index.get(CSS_PANEL_ONE.getSharedResourceKey()));
+	}
+
+	/**
+	 * Verify that keys mounted by multiple strategies are encoded like without the index.
+	 */
+	@Test
+	public void testRender_indexedDuplicate() throws Exception {
+		final WicketTester tester = new WicketTester(new MergedApp() {
+			@Override
+			public String getConfigurationType() {
+				return DEPLOYMENT;
+			}
+
+			@Override
+			protected IRequestCycleProcessor newRequestCycleProcessor() {
+				final Application application = this;
+				return new WebRequestCycleProcessor() {
+					@Override
+					protected IRequestCodingStrategy newRequestCodingStrategy() {
+						return new IndexedWebRequestCodingStrategy(ResourceMount.getStrategyIndex(application));
+					}
+				};
+			}
+		});
+
+		// Wicket prefers this mount over "static/scripts.js"
+		new ResourceMount().setPath("/zzz/PanelOne.js").addResourceSpec(JS_PANEL_ONE).mount(tester.getApplication());
+
+		final SharedResourceStrategyIndex index = ResourceMount.getStrategyIndex(tester.getApplication());
+		final String key = JS_PANEL_ONE.getSharedResourceKey();
+		assertNull(index.get(key));
+
+		tester.setupRequestAndResponse();
+		assertEquals("zzz/PanelOne.js", tester.createRequestCycle().urlFor(JS_PANEL_ONE).toString());
+
+		tester.getApplication().unmount("/zzz/PanelOne.js");
+		assertEquals("static/scripts.js", ((IMountableRequestTargetUrlCodingStrategy) index.get(key)).getMountPath());
+	}
+
 	/**
 	 * Verify that individual, non-merged resources can be succesfully downloaded in development mode.
 	 */
@@ -95,6 +175,79 @@ public class ResourceMountTest {
 		assertDownloaded(tester, "static/scripts.js", MERGED_JS);
 	}
 
+	/**
+	 * Verify that resources loaded by an init executor are merged and can be successfully downloaded.
+	 */
+	@Test
+	public void testDownload_initExecutor() throws IOException {
+		final ExecutorService executor = new ForkJoinPool(2);
+		try {
+			final WicketTester tester = new WicketTester(new MergedApp() {
+				@Override
+				protected void init() {
+					ResourceMount.setInitExecutor(this, executor);
+					super.init();
+					ResourceMount.awaitInit(this);
+				}
+
+				@Override
+				public String getConfigurationType() {
+					return DEPLOYMENT;
+				}
+			});
+			assertSame(executor, ResourceMount.getInitExecutor(tester.getApplication()));
+			assertDownloaded(tester, "static/styles.css", MERGED_CSS);
+			assertDownloaded(tester, "static/scripts.js", MERGED_JS);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Verify that a source map is mounted next to merged resources and referenced by a SourceMap header.
+	 */
+	@Test
+	public void testDownload_sourceMap() throws IOException {
+		final WicketTester tester = new WicketTester(new MergedApp() {
+			@Override
+			protected void init() {
+				super.init();
+				new ResourceMount().setMinifyJs(false).setSourceMap(true).setPath("/static/mapped.js")
+						.addResourceSpecs(MERGED_JS).mount(this);
+			}
+
+			@Override
+			public String getConfigurationType() {
+				return DEPLOYMENT;
+			}
+		});
+		assertDownloaded(tester, "static/mapped.js", MERGED_JS);
+		assertEquals("mapped.js.map", tester.getServletResponse().getHeader("SourceMap"));
+
+		// no source map for resources without
+		assertDownloaded(tester, "static/scripts.js", MERGED_JS);
+		assertNull(tester.getServletResponse().getHeader("SourceMap"));
+
+		final WebRequestCycle wrc = tester.setupRequestAndResponse(false);
+		tester.getServletRequest().setURL("static/mapped.js.map");
+		tester.processRequestCycle(wrc);
+		final String map = tester.getServletResponse().getDocument();
+
+		assertTrue(map, map.startsWith("{\"version\":3,\"sections\":[{\"offset\":{\"line\":0,\"column\":0}"));
+		int line = 0;
+		for (final ResourceReference ref : MERGED_JS) {
+			assertTrue(map, map.contains("{\"offset\":{\"line\":" + line + ",\"column\":0},\"map\":{\"version\":3,\"sources\":[\""
+					+ ref.getScope().getName() + "/" + ref.getName() + "\"]"));
+			final InputStream is = ref.getScope().getResourceAsStream(ref.getName());
+			try {
+				// separated by two newlines
+				line += IOUtils.toString(is, "UTF-8").split("\n", -1).length + 1;
+			} finally {
+				IOUtils.closeQuietly(is);
+			}
+		}
+	}
+
 	/**
 	 * Verify that an exception is thrown if we execute build() without specifying a path first.
 	 */
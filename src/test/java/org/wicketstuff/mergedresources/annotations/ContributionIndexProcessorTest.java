@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.annotations;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import at.molindo.utils.io.Compression;
+import at.molindo.utils.io.FileUtils;
+
+public class ContributionIndexProcessorTest {
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	@Test
+	public void testIncremental() throws Exception {
+		final File src = _folder.newFolder("src");
+		final File out = _folder.newFolder("out");
+		final File index = new File(out, ContributionScanner.INDEX);
+
+		compile(out, source(src, "One", true), source(src, "Two", true));
+		assertEquals(Arrays.asList("test.One", "test.Two"), readIndex(index));
+
+		// compiling one class only keeps the other
+		compile(out, source(src, "Three", true));
+		assertEquals(Arrays.asList("test.One", "test.Three", "test.Two"), readIndex(index));
+
+		// removed annotations are dropped
+		compile(out, source(src, "Two", false), source(src, "Three", true));
+		assertEquals(Arrays.asList("test.One", "test.Three"), readIndex(index));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		final File src = _folder.newFolder("src");
+		final File out = _folder.newFolder("out");
+		final File index = new File(out, ContributionScanner.INDEX);
+
+		// nothing to scan in modules without annotated classes
+		compile(out, source(src, "One", false));
+		assertTrue(index.isFile());
+		assertEquals(0, index.length());
+	}
+
+	private static File source(final File dir, final String name, final boolean annotated) throws Exception {
+		final File file = new File(dir, name + ".java");
+		final String annotation = annotated ? "@" + JsContribution.class.getName() + "\n" : "";
+		FileUtils.write(file, Compression.NONE, "package test;\n" + annotation + "public class " + name + " {}\n");
+		return file;
+	}
+
+	private static void compile(final File out, final File... sources) throws Exception {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			final Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sources);
+			final List<String> options = Arrays.asList("-d", out.getPath(), "-classpath",
+					System.getProperty("java.class.path") + File.pathSeparator + out.getPath(), "-processor",
+					ContributionIndexProcessor.class.getName());
+			assertTrue(compiler.getTask(null, fileManager, null, options, null, units).call());
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private static List<String> readIndex(final File index) throws Exception {
+		return Arrays.asList(new String(FileUtils.bytes(index), "UTF-8").trim().split("\n"));
+	}
+}
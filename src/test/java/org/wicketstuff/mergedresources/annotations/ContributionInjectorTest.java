@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.annotations;
+
+import static org.junit.Assert.*;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.behavior.IBehavior;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.annotations.components.PanelOne;
+
+public class ContributionInjectorTest {
+
+	private WicketTester _tester;
+
+	@Before
+	public void before() {
+		_tester = new WicketTester();
+	}
+
+	@After
+	public void after() {
+		_tester.destroy();
+	}
+
+	@Test
+	public void testOnInstantiation() throws Exception {
+		final ContributionInjector injector = new ContributionInjector();
+
+		final PanelOne first = new PanelOne("first");
+		final PanelOne second = new PanelOne("second");
+		injector.onInstantiation(first);
+		injector.onInstantiation(second);
+
+		final HeaderContribution hc = getHeaderContribution(first);
+		assertNotNull(hc);
+		assertEquals(4, hc.getHeaderContributors().length);
+
+		// computed once per class
+		assertSame(hc, getHeaderContribution(second));
+
+		// not annotated
+		final WebMarkupContainer container = new WebMarkupContainer("container");
+		injector.onInstantiation(container);
+		injector.onInstantiation(container);
+		assertNull(getHeaderContribution(container));
+	}
+
+	private static HeaderContribution getHeaderContribution(final Component component) {
+		HeaderContribution hc = null;
+		for (final IBehavior behavior : component.getBehaviors()) {
+			if (behavior instanceof HeaderContribution) {
+				assertNull("added twice", hc);
+				hc = (HeaderContribution) behavior;
+			}
+		}
+		return hc;
+	}
+}
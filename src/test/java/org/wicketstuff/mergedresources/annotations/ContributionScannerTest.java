@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.annotations;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.junit.Test;
+import org.wicketstuff.mergedresources.annotations.ContributionScanner.WeightedResourceSpec;
+import org.wicketstuff.mergedresources.annotations.components.PanelOne;
+
+public class ContributionScannerTest {
+
+	@Test
+	public void testIndex() throws Exception {
+		// written by ContributionIndexProcessor while compiling tests
+		assertNotNull(getClass().getClassLoader().getResource(ContributionScanner.INDEX));
+
+		final String packageName = PanelOne.class.getPackage().getName();
+		final Map<String, SortedSet<WeightedResourceSpec>> indexed = new ContributionScanner(packageName, true)
+				.getContributions();
+		final Map<String, SortedSet<WeightedResourceSpec>> scanned = new ContributionScanner(packageName, false)
+				.getContributions();
+
+		assertFalse(indexed.isEmpty());
+		assertEquals(scanned.keySet(), indexed.keySet());
+		for (final Map.Entry<String, SortedSet<WeightedResourceSpec>> e : scanned.entrySet()) {
+			// same order
+			assertEquals(e.getKey(), new ArrayList<>(e.getValue()), new ArrayList<>(indexed.get(e.getKey())));
+		}
+	}
+
+	@Test
+	public void testIndexOtherPackage() throws Exception {
+		// nothing indexed, falls back to scanning
+		final List<String> paths = new ArrayList<>(new ContributionScanner("org.wicketstuff.mergedresources.versioning")
+				.getContributions().keySet());
+		assertTrue(paths.toString(), paths.isEmpty());
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.wicket.protocol.http.WebRequestCycle;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+
+public class JmxResourceMetricsTest {
+
+	private final MBeanServer _server = MBeanServerFactory.newMBeanServer();
+	private final JmxResourceMetrics _metrics = new JmxResourceMetrics(_server, JmxResourceMetrics.DEFAULT_DOMAIN, "test");
+
+	@After
+	public void unregister() throws Exception {
+		_metrics.unregister();
+		assertTrue(_server.queryNames(new ObjectName(JmxResourceMetrics.DEFAULT_DOMAIN + ":*"), null).isEmpty());
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication() {
+			@Override
+			protected void init() {
+				ResourceMount.setMetrics(this, _metrics);
+				super.init();
+			}
+		});
+
+		request(tester, "script/all-42.js", null, null);
+		final String etag = tester.getServletResponse().getHeader("ETag");
+		request(tester, "script/all-42.js", "gzip", null);
+		request(tester, "script/all-42.js", null, etag);
+		request(tester, "script/all.js", null, null);
+
+		final ObjectName name = findServed();
+		assertEquals(1L, _server.getAttribute(name, "BuildCount"));
+		assertEquals(0L, _server.getAttribute(name, "RebuildCount"));
+		assertEquals(2L, _server.getAttribute(name, "ServedCount"));
+		assertEquals(1L, _server.getAttribute(name, "CompressedServedCount"));
+		assertEquals(1L, _server.getAttribute(name, "NotModifiedCount"));
+		assertTrue((Long) _server.getAttribute(name, "ContentBytes") > 0);
+		final double ratio = (Double) _server.getAttribute(name, "CompressionRatio");
+		assertTrue(String.valueOf(ratio), ratio > 0 && ratio < 1);
+
+		assertEquals(1, _metrics.getStats("script/all.js").getRedirectCount());
+	}
+
+	private ObjectName findServed() throws Exception {
+		final Set<ObjectName> names = _server.queryNames(new ObjectName(JmxResourceMetrics.DEFAULT_DOMAIN
+				+ ":type=MergedResource,application=\"test\",*"), null);
+		assertFalse(names.isEmpty());
+		ObjectName served = null;
+		for (final ObjectName name : names) {
+			if ((Long) _server.getAttribute(name, "ServedCount") > 0) {
+				assertNull("only one resource served", served);
+				served = name;
+			}
+		}
+		assertNotNull(served);
+		return served;
+	}
+
+	private void request(final WicketTester tester, final String url, final String acceptEncoding, final String ifNoneMatch) {
+		final WebRequestCycle wrc = tester.setupRequestAndResponse(false);
+		tester.getServletRequest().setURL(url);
+		if (acceptEncoding != null) {
+			tester.getServletRequest().addHeader("Accept-Encoding", acceptEncoding);
+		}
+		if (ifNoneMatch != null) {
+			tester.getServletRequest().addHeader("If-None-Match", ifNoneMatch);
+		}
+		tester.processRequestCycle(wrc);
+	}
+}
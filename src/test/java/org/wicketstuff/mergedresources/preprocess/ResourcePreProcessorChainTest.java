@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.preprocess;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.wicketstuff.mergedresources.ResourceMount;
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessor;
+
+public class ResourcePreProcessorChainTest {
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	@Test
+	public void testDecodeOnce() throws Exception {
+		final List<CharSequence> seen = new ArrayList<>();
+		final ResourcePreProcessorChain chain = new ResourcePreProcessorChain(new Append("b", seen), new Append("c", seen));
+
+		assertEquals("äbc", new String(chain.preProcess(null, "ä".getBytes("UTF-8")), "UTF-8"));
+		// second stage gets text of first stage without encoding in between
+		assertEquals(2, seen.size());
+		assertTrue(seen.get(1) instanceof StringBuilder);
+	}
+
+	@Test
+	public void testByteStage() throws Exception {
+		final IResourcePreProcessor upper = new IResourcePreProcessor() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+				return new String(content, ISO_8859_1).toUpperCase().getBytes(ISO_8859_1);
+			}
+		};
+		final List<CharSequence> seen = new ArrayList<>();
+		final ResourcePreProcessorChain chain = new ResourcePreProcessorChain(new Append("b", seen), upper, new Append("c", seen));
+		assertEquals("ABc", new String(chain.preProcess(null, "a".getBytes("UTF-8")), "UTF-8"));
+	}
+
+	@Test
+	public void testCharset() throws Exception {
+		final ResourcePreProcessorChain chain = new ResourcePreProcessorChain(new Append("ö", null));
+
+		// @charset rule
+		final String css = "@charset \"ISO-8859-1\";ä";
+		assertArrayEquals((css + "ö").getBytes(ISO_8859_1), chain.preProcess(null, css.getBytes(ISO_8859_1)));
+
+		// byte order mark is kept
+		final byte[] bom = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a' };
+		final byte[] processed = chain.preProcess(null, bom);
+		assertEquals(6, processed.length);
+		assertEquals((byte) 0xEF, processed[0]);
+		assertEquals("aö", new String(processed, 3, 3, "UTF-8"));
+
+		// default charset
+		final ResourcePreProcessorChain latin = new ResourcePreProcessorChain(ISO_8859_1, new Append("ö", null));
+		assertArrayEquals("äö".getBytes(ISO_8859_1), latin.preProcess(null, "ä".getBytes(ISO_8859_1)));
+		assertEquals(ISO_8859_1, latin.add(new Append("x", null)).getDefaultCharset());
+	}
+
+	@Test
+	public void testStringResourcePreProcessor() throws Exception {
+		// UTF-8 regardless of platform default
+		assertEquals("äö", new String(new Append("ö", null).preProcess(null, "ä".getBytes("UTF-8")), "UTF-8"));
+	}
+
+	@Test
+	public void testAdd() throws Exception {
+		final Append a = new Append("a", null);
+		final Append b = new Append("b", null);
+		final CssUrlRewritingResourcePreProcessor css = new CssUrlRewritingResourcePreProcessor();
+
+		final ResourcePreProcessorChain chain = new ResourcePreProcessorChain(a, b);
+		final ResourcePreProcessorChain added = chain.add(css);
+		assertEquals(2, chain.getStages().size());
+		assertEquals(3, added.getStages().size());
+
+		// nested chains are flattened
+		assertEquals(4, new ResourcePreProcessorChain(added, a).getStages().size());
+
+		final ResourceMount mount = new ResourceMount();
+		assertSame(a, mount.addPreProcessor(a).getPreProcessor());
+		mount.addPreProcessor(b).addPreProcessor(css);
+		assertEquals(3, ((ResourcePreProcessorChain) mount.getPreProcessor()).getStages().size());
+
+		final ResourceSpec spec = new ResourceSpec(ResourcePreProcessorChainTest.class, "test.css");
+		assertEquals("url(/resources/" + ResourcePreProcessorChainTest.class.getName() + "/x.png)ab",
+				new String(mount.getPreProcessor().preProcess(spec, "url(x.png)".getBytes("UTF-8")), "UTF-8"));
+	}
+
+	private static final class Append extends StringResourcePreProcessor {
+		private static final long serialVersionUID = 1L;
+
+		private final String _suffix;
+		private final transient List<CharSequence> _seen;
+
+		private Append(final String suffix, final List<CharSequence> seen) {
+			_suffix = suffix;
+			_seen = seen;
+		}
+
+		@Override
+		public CharSequence preProcessText(final ResourceSpec resourceSpec, final CharSequence text) {
+			if (_seen != null) {
+				_seen.add(text);
+			}
+			return new StringBuilder(text).append(_suffix);
+		}
+
+		@Override
+		protected String preProcess(final ResourceSpec resourceSpec, final String string) {
+			return preProcessText(resourceSpec, string).toString();
+		}
+	}
+}
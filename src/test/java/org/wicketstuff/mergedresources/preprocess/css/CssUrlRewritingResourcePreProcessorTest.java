@@ -85,4 +85,72 @@ public class CssUrlRewritingResourcePreProcessorTest extends TestCase {
 		final String expected = "url(res/test.png);";
 		assertEquals(expected, actual);
 	}
+
+	/**
+	 * Test quoted urls, multiple urls on one line and upper case url.
+	 */
+	@Test
+	public void testPreProcessQuotedUrls() {
+		final String actual = testPreProcess("test.css", "a{background:url( 'a.png' )} b{background:URL(\"b.png\")}");
+		final String expected = "a{background:url( '/resources/org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessorTest/a.png' )} "
+				+ "b{background:URL(\"/resources/org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessorTest/b.png\")}";
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Test the directory of the CSS file is used as base path.
+	 */
+	@Test
+	public void testPreProcessSubdirectory() {
+		final String actual = testPreProcess("res/test.css", "url(../img/test.png)");
+		final String expected = "url(/resources/org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessorTest/res/../img/test.png)";
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Test urls with scheme, protocol relative urls and fragments are not replaced.
+	 */
+	@Test
+	public void testPreProcessAbsoluteUrls() {
+		final String input = "url(data:image/png;base64,iVBOR/w0K) url(\"http://example.com/a.png\") url(//cdn.example.com/a.png) "
+				+ "url(#filter) url(\\a.png) url()";
+		assertEquals(input, testPreProcess("test.css", input));
+	}
+
+	/**
+	 * Test comments and strings are not replaced.
+	 */
+	@Test
+	public void testPreProcessCommentsAndStrings() {
+		final String input = "/* url(a.png) */ a:after{content:\"url(b.png)\"} b{font-family:'url(c)'} myurl(d.png)";
+		assertEquals(input, testPreProcess("test.css", input));
+	}
+
+	/**
+	 * Test both forms of @import are replaced.
+	 */
+	@Test
+	public void testPreProcessImport() {
+		final String actual = testPreProcess("test.css", "@import \"a.css\";\n@import url(b.css);\n@import 'http://example.com/c.css';");
+		final String expected = "@import \"/resources/org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessorTest/a.css\";\n"
+				+ "@import url(/resources/org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessorTest/b.css);\n"
+				+ "@import 'http://example.com/c.css';";
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Test bytes are processed without charset round trip and returned as is without relative urls.
+	 */
+	@Test
+	public void testPreProcessBytes() throws Exception {
+		final CssUrlRewritingResourcePreProcessor preprocessor = new CssUrlRewritingResourcePreProcessor();
+		final ResourceSpec resourceSpec = new ResourceSpec(CssUrlRewritingResourcePreProcessorTest.class, "test.css");
+
+		final byte[] unchanged = "a:after{content:\"\u00e4\"}".getBytes("UTF-8");
+		assertSame(unchanged, preprocessor.preProcess(resourceSpec, unchanged));
+
+		final byte[] actual = preprocessor.preProcess(resourceSpec, "a:after{content:\"\u00e4\"} b{background:url(b.png)}".getBytes("UTF-8"));
+		assertEquals("a:after{content:\"\u00e4\"} b{background:url(/resources/org.wicketstuff.mergedresources.preprocess.css.CssUrlRewritingResourcePreProcessorTest/b.png)}",
+				new String(actual, "UTF-8"));
+	}
 }
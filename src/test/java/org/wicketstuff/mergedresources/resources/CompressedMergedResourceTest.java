@@ -0,0 +1,135 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.wicket.protocol.http.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.WebRequestCycle;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.components.MyForm;
+import org.wicketstuff.mergedresources.components.PanelOne;
+
+import at.molindo.utils.io.StreamUtils;
+
+public class CompressedMergedResourceTest {
+
+	@Test
+	public void testAcceptsGzip() {
+		assertFalse(CompressedMergedResource.acceptsGzip(null));
+		assertFalse(CompressedMergedResource.acceptsGzip(""));
+		assertFalse(CompressedMergedResource.acceptsGzip("deflate, br"));
+		assertTrue(CompressedMergedResource.acceptsGzip("gzip"));
+		assertTrue(CompressedMergedResource.acceptsGzip("deflate, gzip;q=0.5"));
+		assertTrue(CompressedMergedResource.acceptsGzip("x-gzip"));
+		assertTrue(CompressedMergedResource.acceptsGzip("*"));
+		assertFalse(CompressedMergedResource.acceptsGzip("gzip;q=0, *"));
+		assertFalse(CompressedMergedResource.acceptsGzip("gzip; q=0.0"));
+		assertFalse(CompressedMergedResource.acceptsGzip("*;q=0"));
+	}
+
+	@Test
+	public void testDownloadCompressed() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+
+		final byte[] identity = download(tester, null);
+		final MockHttpServletResponse identityResponse = tester.getServletResponse();
+		assertNull(identityResponse.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", identityResponse.getHeader("Vary"));
+
+		final byte[] gzipped = download(tester, "gzip, deflate");
+		final MockHttpServletResponse gzipResponse = tester.getServletResponse();
+		assertEquals("gzip", gzipResponse.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", gzipResponse.getHeader("Vary"));
+		assertEquals(Integer.toString(gzipped.length), gzipResponse.getHeader("Content-Length"));
+
+		assertArrayEquals(identity, StreamUtils.bytes(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+	}
+
+	@Test
+	public void testPrepare() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+
+		final CompressedMergedResource resource = new CompressedMergedJsResource(PanelOne.class, "all.js", null, null, new ResourceSpec[] {
+				new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, 60, null);
+		resource.prepare();
+
+		assertFalse(tester.getApplication().getResourceSettings().getDisableGZipCompression());
+		final IResourceStream compressed = resource.getMergedResourceStream().getCompressedResourceStream();
+		assertArrayEquals(StreamUtils.bytes(resource.getMergedResourceStream().getInputStream()), StreamUtils
+				.bytes(new GZIPInputStream(compressed.getInputStream())));
+	}
+
+	@Test
+	public void testMatchesEntityTag() {
+		assertFalse(MergedResource.matchesEntityTag(null, "\"abc\""));
+		assertTrue(MergedResource.matchesEntityTag("\"abc\"", "\"abc\""));
+		assertTrue(MergedResource.matchesEntityTag("\"x\", W/\"abc\"", "\"abc\""));
+		assertTrue(MergedResource.matchesEntityTag("*", "\"abc\""));
+		assertFalse(MergedResource.matchesEntityTag("\"abc-gzip\"", "\"abc\""));
+	}
+
+	@Test
+	public void testConditionalGet() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+
+		download(tester, null);
+		final String identityTag = tester.getServletResponse().getHeader("ETag");
+		assertTrue(identityTag, identityTag.matches("\"[0-9a-f]{64}\""));
+
+		download(tester, "gzip");
+		final String gzipTag = tester.getServletResponse().getHeader("ETag");
+		assertEquals(identityTag.substring(0, 65) + "-gzip\"", gzipTag);
+
+		assertEquals(0, download(tester, "gzip", "W/" + gzipTag).length);
+		MockHttpServletResponse response = tester.getServletResponse();
+		assertEquals(304, response.getStatus());
+		assertEquals(gzipTag, response.getHeader("ETag"));
+		assertNull(response.getHeader("Content-Encoding"));
+		assertNull(response.getHeader("Content-Length"));
+
+		// identity tag doesn't match gzipped representation
+		assertTrue(download(tester, "gzip", identityTag).length > 0);
+		response = tester.getServletResponse();
+		assertEquals(200, response.getStatus());
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertNotNull(response.getHeader("Last-Modified"));
+	}
+
+	private byte[] download(final WicketTester tester, final String acceptEncoding) {
+		return download(tester, acceptEncoding, null);
+	}
+
+	private byte[] download(final WicketTester tester, final String acceptEncoding, final String ifNoneMatch) {
+		final WebRequestCycle wrc = tester.setupRequestAndResponse(false);
+		tester.getServletRequest().setURL("script/all-42.js");
+		if (acceptEncoding != null) {
+			tester.getServletRequest().addHeader("Accept-Encoding", acceptEncoding);
+		}
+		if (ifNoneMatch != null) {
+			tester.getServletRequest().addHeader("If-None-Match", ifNoneMatch);
+		}
+		tester.processRequestCycle(wrc);
+		return tester.getServletResponse().getBinaryContent();
+	}
+}
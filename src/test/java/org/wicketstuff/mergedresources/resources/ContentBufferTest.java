@@ -0,0 +1,48 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+public class ContentBufferTest {
+
+	@Test
+	public void testRead() throws Exception {
+		final byte[] content = new byte[10000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		// exact, too small, too large and missing hints
+		assertArrayEquals(content, ContentBuffer.read(new ByteArrayInputStream(content), content.length));
+		assertArrayEquals(content, ContentBuffer.read(new ByteArrayInputStream(content), 10));
+		assertArrayEquals(content, ContentBuffer.read(new ByteArrayInputStream(content), 20000));
+		assertArrayEquals(content, ContentBuffer.read(new ByteArrayInputStream(content), -1));
+		assertEquals(0, ContentBuffer.read(new ByteArrayInputStream(new byte[0]), 0).length);
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		final ContentBuffer buffer = new ContentBuffer(7);
+		buffer.readFrom(new ByteArrayInputStream("foo".getBytes()), 3);
+		buffer.write('\n');
+		buffer.readFrom(new ByteArrayInputStream("bar".getBytes()), 3);
+		assertEquals("foo\nbar", new String(buffer.materialize()));
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.apache.wicket.protocol.http.WebRequestCycle;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+
+import at.molindo.utils.io.StreamUtils;
+
+public class DirectResourceContentStoreTest {
+
+	@Test
+	public void testStore() throws Exception {
+		final byte[] bytes = new byte[20000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (i * 31);
+		}
+		final IResourceContent content = new DirectResourceContentStore().store(bytes);
+		assertEquals(bytes.length, content.length());
+
+		// independent streams
+		final InputStream in = content.getInputStream();
+		assertEquals(bytes[0] & 0xFF, in.read());
+		assertArrayEquals(bytes, StreamUtils.bytes(content.getInputStream()));
+		in.mark(0);
+		assertEquals(bytes.length - 1, StreamUtils.bytes(in).length);
+		in.reset();
+		assertEquals(bytes[1] & 0xFF, in.read());
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		content.writeTo(out);
+		assertArrayEquals(bytes, out.toByteArray());
+
+		assertEquals(0, new DirectResourceContentStore().store(new byte[0]).length());
+	}
+
+	@Test
+	public void testDownload() throws Exception {
+		final byte[] heap = download(new WicketTester(new NewInterfaceTestApplication()));
+		final byte[] direct = download(new WicketTester(new NewInterfaceTestApplication() {
+			@Override
+			protected void init() {
+				ResourceMount.setContentStore(this, new DirectResourceContentStore());
+				super.init();
+			}
+		}));
+		assertTrue(heap.length > 0);
+		assertArrayEquals(heap, direct);
+	}
+
+	private byte[] download(final WicketTester tester) {
+		final WebRequestCycle wrc = tester.setupRequestAndResponse(false);
+		tester.getServletRequest().setURL("script/all-42.js");
+		tester.processRequestCycle(wrc);
+		return tester.getServletResponse().getBinaryContent();
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.javascript.IJavascriptCompressor;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.components.MyForm;
+import org.wicketstuff.mergedresources.components.PanelOne;
+import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
+
+public class FileResourceBuildCacheTest {
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	@Test
+	public void testGetPut() throws Exception {
+		final FileResourceBuildCache cache = new FileResourceBuildCache(_folder.newFolder("cache"));
+		assertNull(cache.get("abc"));
+		cache.put("abc", "foo".getBytes());
+		assertArrayEquals("foo".getBytes(), cache.get("abc"));
+		cache.put("abc", "bar".getBytes());
+		assertArrayEquals("bar".getBytes(), cache.get("abc"));
+		assertEquals(1, cache.getDirectory().list().length);
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final FileResourceBuildCache cache = new FileResourceBuildCache(_folder.newFolder("cache"));
+		ResourceMount.setBuildCache(tester.getApplication(), cache);
+
+		final CountingPreProcessor preProcessor = new CountingPreProcessor();
+		final String digest = newStream(preProcessor).getDigest();
+		assertEquals(3, preProcessor._count.get());
+
+		// built content is reused
+		assertEquals(digest, newStream(preProcessor).getDigest());
+		assertEquals(3, preProcessor._count.get());
+
+		// pipeline changed, same content but new entry
+		final CountingPreProcessor other = new CountingPreProcessor() {
+		};
+		assertEquals(digest, newStream(other).getDigest());
+		assertEquals(3, other._count.get());
+		assertEquals(2, cache.getDirectory().list().length);
+	}
+
+	@Test
+	public void testReuseWithoutSourceMap() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final FileResourceBuildCache cache = new FileResourceBuildCache(_folder.newFolder("cache"));
+		ResourceMount.setBuildCache(tester.getApplication(), cache);
+		final AtomicInteger compressed = new AtomicInteger();
+		tester.getApplication().getResourceSettings().setJavascriptCompressor(new IJavascriptCompressor() {
+
+			@Override
+			public String compress(final String original) {
+				compressed.incrementAndGet();
+				return original.replaceAll("\\s+", " ");
+			}
+		});
+
+		// merged content minified as a whole, no source map possible
+		MergedResourceStream stream = newMinifiedStream();
+		final String digest = stream.getDigest();
+		assertNull(stream.getSourceMap());
+		assertEquals(1, compressed.get());
+
+		// cached without map
+		stream = newMinifiedStream();
+		assertEquals(digest, stream.getDigest());
+		assertNull(stream.getSourceMap());
+		assertEquals(1, compressed.get());
+	}
+
+	private MergedResourceStream newMinifiedStream() {
+		final MergedResourceStream stream = new CompressedMergedJsResource(PanelOne.class, "all.js", null, null,
+				new ResourceSpec[] { new ResourceSpec(PanelOne.class, "PanelOne.js"),
+						new ResourceSpec(MyForm.class, "MyForm.js") }, 0, null).getMergedResourceStream();
+		stream.setSourceMap(true);
+		return stream;
+	}
+
+	private MergedResourceStream newStream(final IResourcePreProcessor preProcessor) {
+		return new MergedResourceStream(new ResourceSpec[] { new ResourceSpec(PanelOne.class, "PanelOne.js"),
+				new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, preProcessor);
+	}
+
+	private static class CountingPreProcessor implements IResourcePreProcessor {
+		private final AtomicInteger _count = new AtomicInteger();
+
+		@Override
+		public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+			_count.incrementAndGet();
+			return content;
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.util.listener.IChangeListener;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.IResourceStreamWriter;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.tester.WicketTester;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+import org.wicketstuff.mergedresources.ResourceSpec;
+import org.wicketstuff.mergedresources.components.MyForm;
+import org.wicketstuff.mergedresources.components.PanelOne;
+import org.wicketstuff.mergedresources.preprocess.IResourcePreProcessor;
+
+import at.molindo.utils.io.StreamUtils;
+
+public class MergedResourceStreamTest {
+
+	@Test
+	public void testWrite() throws Exception {
+		new WicketTester(new NewInterfaceTestApplication());
+
+		final MergedResourceStream stream = new MergedResourceStream(new ResourceSpec[] {
+				new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, null, true);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		stream.write(out);
+		assertArrayEquals(StreamUtils.bytes(stream.getInputStream()), out.toByteArray());
+		assertEquals(stream.length(), out.size());
+
+		final IResourceStream compressed = stream.getCompressedResourceStream();
+		out.reset();
+		((IResourceStreamWriter) compressed).write(out);
+		assertArrayEquals(StreamUtils.bytes(compressed.getInputStream()), out.toByteArray());
+		assertEquals(compressed.length(), out.size());
+	}
+
+	@Test
+	public void testStaleContentServedWhileRebuilding() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final Application application = tester.getApplication();
+		final RecordingWatcher watcher = new RecordingWatcher();
+		application.getResourceSettings().setResourceWatcher(watcher);
+
+		final AtomicInteger builds = new AtomicInteger();
+		final CountDownLatch rebuilding = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final IResourcePreProcessor preProcessor = new IResourcePreProcessor() {
+
+			@Override
+			public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+				if (resourceSpec != null) {
+					return content;
+				}
+				if (builds.incrementAndGet() > 1) {
+					rebuilding.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return (new String(content) + "//" + builds.get()).getBytes();
+			}
+		};
+
+		final MergedResourceStream stream = new MergedResourceStream(new ResourceSpec[] {
+				new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, preProcessor);
+		final String first = stream.getDigest();
+		assertEquals(2, watcher._listeners.size());
+
+		watcher._listeners.get(0).onChange();
+		final Thread rebuild = new Thread() {
+			@Override
+			public void run() {
+				Application.set(application);
+				try {
+					stream.prepare();
+				} finally {
+					Application.unset();
+				}
+			}
+		};
+		rebuild.start();
+		assertTrue(rebuilding.await(10, TimeUnit.SECONDS));
+
+		// doesn't block while another thread rebuilds
+		assertEquals(first, stream.getDigest());
+
+		release.countDown();
+		rebuild.join(10000);
+		assertFalse(first.equals(stream.getDigest()));
+		assertEquals(2, builds.get());
+		// only the changed file is watched again
+		assertEquals(3, watcher._listeners.size());
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final RecordingWatcher watcher = new RecordingWatcher();
+		tester.getApplication().getResourceSettings().setResourceWatcher(watcher);
+
+		final AtomicInteger builds = new AtomicInteger();
+		final IResourcePreProcessor preProcessor = new IResourcePreProcessor() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+				if (resourceSpec != null) {
+					return content;
+				}
+				// content length differs between builds
+				final StringBuilder buf = new StringBuilder(new String(content));
+				for (int i = builds.incrementAndGet(); i > 0; i--) {
+					buf.append("//");
+				}
+				return buf.toString().getBytes();
+			}
+		};
+
+		final MergedResourceStream stream = new MergedResourceStream(new ResourceSpec[] {
+				new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, preProcessor, true);
+		final MergedResourceStream.Snapshot snapshot = stream.snapshot();
+		final MergedResourceStream.Snapshot compressed = snapshot.getCompressedResourceStream();
+		final String digest = snapshot.getDigest();
+		final long length = snapshot.length();
+		final long compressedLength = compressed.length();
+
+		watcher._listeners.get(0).onChange();
+		stream.prepare();
+		assertEquals(2, builds.get());
+		assertFalse(digest.equals(stream.getDigest()));
+		assertFalse(length == stream.length());
+
+		// still serves the build it was taken from
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(out);
+		assertEquals(digest, snapshot.getDigest());
+		assertEquals(length, out.size());
+		out.reset();
+		compressed.write(out);
+		assertEquals(compressedLength, out.size());
+	}
+
+	@Test
+	public void testReplacedBuildUnreachable() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final RecordingWatcher watcher = new RecordingWatcher();
+		tester.getApplication().getResourceSettings().setResourceWatcher(watcher);
+		final List<WeakReference<IResourceContent>> stored = new CopyOnWriteArrayList<>();
+		ResourceMount.setContentStore(tester.getApplication(), new HeapResourceContentStore() {
+
+			@Override
+			public IResourceContent store(final byte[] content) {
+				final IResourceContent result = super.store(content);
+				stored.add(new WeakReference<>(result));
+				return result;
+			}
+		});
+
+		final MergedResourceStream stream = new MergedResourceStream(new ResourceSpec[] {
+				new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, null);
+		stream.prepare();
+
+		// listener of the unchanged MyForm.js is still registered by the first build
+		watcher._listeners.get(0).onChange();
+		stream.prepare();
+		assertEquals(2, stored.size());
+
+		for (int i = 0; i < 50 && stored.get(0).get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(stored.get(0).get());
+		assertNotNull(stored.get(1).get());
+	}
+
+	@Test
+	public void testIncrementalRebuild() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final RecordingWatcher watcher = new RecordingWatcher();
+		tester.getApplication().getResourceSettings().setResourceWatcher(watcher);
+
+		final Map<String, AtomicInteger> processed = new ConcurrentHashMap<>();
+		final IResourcePreProcessor preProcessor = new IResourcePreProcessor() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+				final String key = resourceSpec == null ? "merged" : resourceSpec.getFile();
+				if (!processed.containsKey(key)) {
+					processed.put(key, new AtomicInteger());
+				}
+				processed.get(key).incrementAndGet();
+				return content;
+			}
+		};
+
+		final MergedResourceStream stream = new MergedResourceStream(new ResourceSpec[] {
+				new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, preProcessor);
+		final String first = stream.getDigest();
+
+		watcher._listeners.get(1).onChange();
+		assertEquals(first, stream.getDigest());
+
+		// only the changed file is read and watched again, unchanged content isn't processed again
+		assertEquals(1, processed.get("PanelOne.js").get());
+		assertEquals(1, processed.get("MyForm.js").get());
+		assertEquals(2, processed.get("merged").get());
+		assertEquals(3, watcher._listeners.size());
+	}
+
+	@Test
+	public void testFileBuildPool() throws Exception {
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication());
+		final Application application = tester.getApplication();
+		final RecordingWatcher watcher = new RecordingWatcher();
+		application.getResourceSettings().setResourceWatcher(watcher);
+
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		ResourceMount.setFileBuildPool(application, pool);
+		try {
+			final AtomicInteger files = new AtomicInteger();
+			final IResourcePreProcessor preProcessor = new IResourcePreProcessor() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public byte[] preProcess(final ResourceSpec resourceSpec, final byte[] content) {
+					if (resourceSpec == null) {
+						return (new String(content) + "//merged").getBytes();
+					}
+					files.incrementAndGet();
+					return resourceSpec.getFile().getBytes();
+				}
+			};
+
+			final MergedResourceStream stream = new MergedResourceStream(new ResourceSpec[] {
+					new ResourceSpec(PanelOne.class, "PanelOne.js"), new ResourceSpec(MyForm.class, "MyForm.js") }, null, null, preProcessor) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected byte[] toContent(final byte[] content) {
+					// requires application in worker threads
+					return (Application.get().getName() + ":" + new String(content)).getBytes();
+				}
+			};
+
+			final String name = application.getName();
+			assertEquals(name + ":PanelOne.js\n\n" + name + ":MyForm.js//merged",
+					new String(StreamUtils.bytes(stream.getInputStream())));
+			assertEquals(2, files.get());
+
+			// unchanged files aren't processed again
+			watcher._listeners.get(0).onChange();
+			stream.prepare();
+			assertEquals(2, files.get());
+			assertEquals(3, watcher._listeners.size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static final class RecordingWatcher implements IModificationWatcher {
+		private final List<IChangeListener> _listeners = new CopyOnWriteArrayList<>();
+
+		@Override
+		public boolean add(final IModifiable modifiable, final IChangeListener listener) {
+			_listeners.add(listener);
+			return true;
+		}
+
+		@Override
+		public IModifiable remove(final IModifiable modifiable) {
+			return null;
+		}
+
+		@Override
+		public void start(final Duration pollFrequency) {
+		}
+
+		@Override
+		public void destroy() {
+		}
+
+		@Override
+		public Set<IModifiable> getEntries() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.resources;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+import org.wicketstuff.mergedresources.metrics.IResourceMetrics;
+import org.wicketstuff.mergedresources.metrics.ResourceBuild;
+
+public class ResourceBuildExporterTest {
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	@Test
+	public void testExport() throws Exception {
+		final File directory = _folder.newFolder("export");
+		final Set<String> keys = new ResourceBuildExporter(directory).export(new NewInterfaceTestApplication());
+		assertFalse(keys.isEmpty());
+
+		final ClasspathResourceBuildCache cache = new ClasspathResourceBuildCache(new URLClassLoader(
+				new URL[] { directory.toURI().toURL() }, null), "");
+		assertEquals(keys, cache.getKeys());
+		for (final String key : keys) {
+			assertNotNull(key, cache.get(key));
+		}
+		assertNull(cache.get("missing"));
+
+		// exported content is served without building
+		final NewInterfaceTestApplication application = new NewInterfaceTestApplication();
+		final BuildRecorder metrics = new BuildRecorder();
+		ResourceMount.setBuildCache(application, cache);
+		ResourceMount.setMetrics(application, metrics);
+		final WicketTester tester = new WicketTester(application);
+		try {
+			assertFalse(metrics._builds.isEmpty());
+			for (final ResourceBuild build : metrics._builds) {
+				assertTrue(build.toString(), build.isCached());
+			}
+		} finally {
+			tester.destroy();
+		}
+	}
+
+	@Test
+	public void testMissingManifest() throws Exception {
+		final ClasspathResourceBuildCache cache = new ClasspathResourceBuildCache(new URLClassLoader(
+				new URL[] { _folder.newFolder("empty").toURI().toURL() }, null), "");
+		assertTrue(cache.getKeys().isEmpty());
+		assertNull(cache.get("missing"));
+	}
+
+	private static class BuildRecorder implements IResourceMetrics {
+		private final List<ResourceBuild> _builds = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void built(final ResourceBuild build) {
+			_builds.add(build);
+		}
+
+		@Override
+		public void changed(final String name) {
+		}
+
+		@Override
+		public void served(final String name, final boolean compressed, final long bytes) {
+		}
+
+		@Override
+		public void notModified(final String name) {
+		}
+
+		@Override
+		public void redirected(final String mountPath, final String redirectPath) {
+		}
+	}
+}
@@ -15,6 +15,16 @@
  */
 package org.wicketstuff.mergedresources.urlcoding;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.Test;
 import org.wicketstuff.mergedresources.HomePage;
@@ -54,4 +64,35 @@ public class RemoteHostResourceMountTest {
 		tester.assertRenderedPage(HomePage.class);
 		tester.assertResultPage(RemoteHostResourceMountTest.class, "RemoteHostResourceMountTest-expected-schemeless.html");
 	}
+
+	@Test
+	public void selectRoot() throws Exception {
+		final URL a = new URL("http://a.cdn.example.com/test");
+		final URL b = new URL("http://b.cdn.example.com/test");
+		final URL c = new URL("http://c.cdn.example.com/test");
+		final List<URL> roots = Arrays.asList(a, b, c);
+
+		final Map<URL, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 300; i++) {
+			final String key = "org.example.Resource/file" + i + ".css";
+			final URL root = RemoteHostResourceMount.selectRoot(roots, key);
+
+			// stable, independent of order
+			assertEquals(root, RemoteHostResourceMount.selectRoot(Arrays.asList(c, b, a), key));
+
+			// removing another root doesn't move the resource
+			final URL other = root == a ? b : a;
+			final List<URL> remaining = new ArrayList<>(roots);
+			remaining.remove(other);
+			assertEquals(root, RemoteHostResourceMount.selectRoot(remaining, key));
+
+			final Integer count = counts.get(root);
+			counts.put(root, count == null ? 1 : count + 1);
+		}
+
+		assertEquals(3, counts.size());
+		for (final Integer count : counts.values()) {
+			assertTrue(count.toString(), count > 50);
+		}
+	}
 }
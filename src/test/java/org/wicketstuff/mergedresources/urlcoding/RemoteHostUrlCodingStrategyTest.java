@@ -15,14 +15,20 @@
  */
 package org.wicketstuff.mergedresources.urlcoding;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.wicket.PageParameters;
 import org.apache.wicket.ResourceReference;
 import org.apache.wicket.markup.html.image.Image;
 import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.request.RequestParameters;
 import org.apache.wicket.request.target.coding.AbstractRequestTargetUrlCodingStrategy;
 import org.apache.wicket.request.target.coding.IndexedSharedResourceCodingStrategy;
+import org.apache.wicket.request.target.resource.SharedResourceRequestTarget;
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.Test;
 import org.wicketstuff.mergedresources.AbstractTestApplication;
@@ -61,6 +67,70 @@ public class RemoteHostUrlCodingStrategyTest {
 
 	}
 
+	@Test
+	public void encodingCached() throws Exception {
+		final URL url = new URL("http://cdn.example.com/files");
+		// created on mount as resource references need an application
+		final AtomicReference<RemoteHostUrlCodingStrategy> mounted = new AtomicReference<>();
+
+		final WicketTester tester = new WicketTester(new AbstractTestApplication() {
+
+			@Override
+			protected void mountResources() {
+				mounted.set(new RemoteHostUrlCodingStrategy(url, "images", REF) {
+					@Override
+					protected AbstractRequestTargetUrlCodingStrategy newStrategy(final String mountPath, final String sharedResourceKey) {
+						return new IndexedSharedResourceCodingStrategy(mountPath, sharedResourceKey);
+					}
+				});
+				mount(mounted.get());
+			}
+		});
+		final RemoteHostUrlCodingStrategy strategy = mounted.get();
+
+		tester.startPanel(ImagePanel.class);
+		assertEquals(1, strategy.getCachedUrlCount());
+
+		tester.startPanel(ImagePanel.class);
+		assertEquals(1, strategy.getCachedUrlCount());
+		tester.assertResultPage(RemoteHostResourceMountTest.class, "RemoteHostUrlCodingStrategyTest-expected-encoding.html");
+
+		strategy.setUseSchemelessUrl(true);
+		assertEquals(0, strategy.getCachedUrlCount());
+	}
+
+	@Test
+	public void encodingCachedWithoutParameters() throws Exception {
+		final URL url = new URL("http://cdn.example.com/files");
+		final AtomicReference<RemoteHostUrlCodingStrategy> mounted = new AtomicReference<>();
+
+		final WicketTester tester = new WicketTester(new AbstractTestApplication() {
+
+			@Override
+			protected void mountResources() {
+				mounted.set(new RemoteHostUrlCodingStrategy(url, "images", REF));
+				mount(mounted.get());
+			}
+		});
+		final RemoteHostUrlCodingStrategy strategy = mounted.get();
+		tester.setupRequestAndResponse();
+		tester.createRequestCycle();
+
+		final RequestParameters params = new RequestParameters();
+		params.setResourceKey(REF.getSharedResourceKey());
+
+		final CharSequence encoded = strategy.encode(new SharedResourceRequestTarget(params));
+		assertEquals("http://cdn.example.com/files/images", encoded.toString());
+		assertEquals(1, strategy.getCachedUrlCount());
+
+		assertSame(encoded, strategy.encode(new SharedResourceRequestTarget(params)));
+		assertEquals(1, strategy.getCachedUrlCount());
+
+		strategy.setUseRequestPort(false);
+		assertEquals(0, strategy.getCachedUrlCount());
+		assertEquals("http://cdn.example.com/files/images", strategy.encode(new SharedResourceRequestTarget(params)).toString());
+	}
+
 	public static class ImagePanel extends Panel {
 
 		public ImagePanel(final String id) {
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.Request;
+import org.apache.wicket.RequestCycle;
+import org.apache.wicket.Response;
+import org.apache.wicket.protocol.http.WebRequest;
+import org.apache.wicket.protocol.http.WebRequestCycle;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.NewInterfaceTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+
+public class PreloadLinksTest {
+
+	@Test
+	public void testSend() throws Exception {
+		final List<List<String>> earlyHints = new CopyOnWriteArrayList<>();
+		final WicketTester tester = new WicketTester(new NewInterfaceTestApplication() {
+
+			@Override
+			protected void init() {
+				super.init();
+				ResourceMount.setEarlyHints(this, new IEarlyHints() {
+
+					@Override
+					public void send(final HttpServletResponse response, final List<String> links) {
+						earlyHints.add(links);
+					}
+				});
+			}
+
+			@Override
+			protected void initMount(final ResourceMount mount) {
+				mount.setMerged(false).setPreload(true);
+			}
+
+			@Override
+			public RequestCycle newRequestCycle(final Request request, final Response response) {
+				return new WebRequestCycle(this, (WebRequest) request, response) {
+
+					@Override
+					protected void onBeginRequest() {
+						final PreloadLinks links = ResourceMount.getPreloadLinks(getApplication());
+						links.send(this);
+						// once per request
+						assertTrue(links.send(this).isEmpty());
+					}
+				};
+			}
+		});
+
+		WebRequestCycle cycle = tester.setupRequestAndResponse(false);
+		tester.processRequestCycle(cycle);
+		tester.assertRenderedPage(tester.getApplication().getHomePage());
+
+		final List<String> expected = Arrays.asList(
+				"<style/all.css/PanelOne-42.css>; rel=preload; as=style",
+				"<style/all.css/ComponentB-42.css>; rel=preload; as=style",
+				"<style/all.css/MyForm-42.css>; rel=preload; as=style",
+				"<style/print.css/ComponentB-print-42.css>; rel=preload; as=style; media=\"print\"",
+				"<style/print.css/PanelOne-print-42.css>; rel=preload; as=style; media=\"print\"",
+				"<script/all.js/PanelOne-42.js>; rel=preload; as=script",
+				"<script/all.js/ComponentB-42.js>; rel=preload; as=script",
+				"<script/all.js/MyForm-42.js>; rel=preload; as=script");
+		assertEquals(Arrays.asList(expected), earlyHints);
+
+		// not for resources
+		cycle = tester.setupRequestAndResponse(false);
+		tester.getServletRequest().setURL("script/all.js/PanelOne-42.js");
+		tester.processRequestCycle(cycle);
+		assertNull(tester.getServletResponse().getHeader("Link"));
+
+		// not for Ajax
+		cycle = tester.setupRequestAndResponse(true);
+		assertTrue(ResourceMount.getPreloadLinks(tester.getApplication()).send(cycle).isEmpty());
+		assertNull(tester.getServletResponse().getHeader("Link"));
+
+		assertEquals(1, earlyHints.size());
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2016 Molindo GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wicketstuff.mergedresources.versioning;
+
+import static org.junit.Assert.*;
+
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.IRequestTargetMountsInfo;
+import org.apache.wicket.request.target.coding.IMountableRequestTargetUrlCodingStrategy;
+import org.apache.wicket.request.target.coding.IRequestTargetUrlCodingStrategy;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Test;
+import org.wicketstuff.mergedresources.AbstractTestApplication;
+import org.wicketstuff.mergedresources.ResourceMount;
+import org.wicketstuff.mergedresources.components.ComponentB;
+import org.wicketstuff.mergedresources.components.MyForm;
+import org.wicketstuff.mergedresources.components.PanelOne;
+
+public class ContentDigestVersionProviderTest {
+
+	@Test
+	public void testMountedPath() throws Exception {
+		final String first = mountedPath(PanelOne.class, ComponentB.class, MyForm.class);
+
+		assertTrue(first, first.matches("script/all-[0-9a-f]{16}\\.js"));
+		assertEquals("same content must result in same path", first, mountedPath(PanelOne.class, ComponentB.class, MyForm.class));
+		assertFalse("different content must result in different path", first.equals(mountedPath(PanelOne.class, ComponentB.class)));
+	}
+
+	@Test
+	public void testLength() throws Exception {
+		final ContentDigestVersionProvider p = new ContentDigestVersionProvider(8);
+		assertEquals("01234567", p.getVersion("0123456789abcdef").getVersion());
+		assertEquals("0123", p.getVersion("0123").getVersion());
+		assertFalse(p.getVersion("").isValid());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLength() throws Exception {
+		new ContentDigestVersionProvider(0);
+	}
+
+	private String mountedPath(final Class<?>... scopes) {
+		final ResourceMount mount = new ResourceMount().setResourceVersionProvider(new ContentDigestVersionProvider())
+				.setPath("/script/all.js").addResourceSpecsMatchingSuffix(scopes);
+
+		final WebApplication app = new AbstractTestApplication() {
+
+			@Override
+			protected void mountResources() {
+				mount.mount(this);
+			}
+		};
+		final WicketTester tester = new WicketTester(app);
+		try {
+			final IRequestTargetMountsInfo mounts = (IRequestTargetMountsInfo) app.getRequestCycleProcessor()
+					.getRequestCodingStrategy();
+			for (final IRequestTargetUrlCodingStrategy strategy : mounts.listMounts()) {
+				final String path = ((IMountableRequestTargetUrlCodingStrategy) strategy).getMountPath();
+				if (path.startsWith("script/all-")) {
+					return path;
+				}
+			}
+			throw new AssertionError("versioned path not mounted");
+		} finally {
+			tester.destroy();
+		}
+	}
+}